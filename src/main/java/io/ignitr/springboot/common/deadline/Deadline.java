@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.deadline;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time after which the client of the current request is no longer waiting for a response.
+ */
+public final class Deadline {
+
+    /**
+     * Name of the request attribute that holds the {@link Deadline} of the current request.
+     */
+    public static final String ATTRIBUTE = Deadline.class.getName();
+
+    private final long expiresAt;
+
+    private Deadline(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Creates a deadline that expires after the specified amount of time.
+     *
+     * @param duration time until the deadline expires
+     * @param unit unit of the duration
+     * @return deadline
+     */
+    public static Deadline after(long duration, TimeUnit unit) {
+        return new Deadline(System.nanoTime() + unit.toNanos(duration));
+    }
+
+    /**
+     * Retrieves the deadline of the request bound to the current thread.
+     *
+     * @return the deadline or <code>null</code> if there is no current request or the request has no deadline
+     */
+    public static Deadline current() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+
+        return (Deadline) attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    /**
+     * @param unit unit of the returned value
+     * @return time remaining until the deadline expires, which is negative once the deadline has expired
+     */
+    public long remaining(TimeUnit unit) {
+        return unit.convert(expiresAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return <code>true</code> if the deadline has expired; otherwise <code>false</code>
+     */
+    public boolean isExpired() {
+        return expiresAt - System.nanoTime() <= 0;
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline{remaining=" + remaining(TimeUnit.MILLISECONDS) + "ms}";
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.deadline;
+
+import io.ignitr.springboot.common.error.CommonErrorCode;
+import io.ignitr.springboot.common.error.IgnitionRuntimeException;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ClientHttpRequestInterceptor} that forwards the remaining time budget of the current request's
+ * {@link Deadline} to downstream services, and that fails fast once the deadline has already expired.
+ */
+public class DeadlineClientHttpRequestInterceptor implements ClientHttpRequestInterceptor {
+    public static final String DEFAULT_HEADER = "X-Request-Timeout";
+
+    private final String header;
+
+    /**
+     * Initializes this instance of {@link DeadlineClientHttpRequestInterceptor} using the default header.
+     */
+    public DeadlineClientHttpRequestInterceptor() {
+        this(DEFAULT_HEADER);
+    }
+
+    /**
+     * Initializes this instance of {@link DeadlineClientHttpRequestInterceptor}.
+     *
+     * @param header name of the header that carries the remaining timeout in milliseconds
+     */
+    public DeadlineClientHttpRequestInterceptor(String header) {
+        this.header = header;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        Deadline deadline = Deadline.current();
+
+        if (deadline != null) {
+            long remaining = deadline.remaining(TimeUnit.MILLISECONDS);
+
+            if (remaining <= 0) {
+                throw new IgnitionRuntimeException(HttpStatus.GATEWAY_TIMEOUT,
+                        "Request deadline expired before calling " + request.getURI(),
+                        CommonErrorCode.DEADLINE_EXCEEDED);
+            }
+
+            request.getHeaders().set(header, String.valueOf(remaining));
+        }
+
+        return execution.execute(request, body);
+    }
+}
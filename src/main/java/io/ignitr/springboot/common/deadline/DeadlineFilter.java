@@ -0,0 +1,68 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.deadline;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filter that reads the timeout, in milliseconds, that the client is willing to wait for a response from the
+ * deadline header and stores the resulting {@link Deadline} on the request.
+ *
+ * <p>
+ * The deadline is applied to Observables with {@link io.ignitr.springboot.common.rx.DeadlineTransformer} and
+ * forwarded on outbound calls with {@link DeadlineClientHttpRequestInterceptor}.
+ * </p>
+ */
+@Component
+public class DeadlineFilter extends OncePerRequestFilter {
+
+    @Value("${ignition.deadline.header:" + DeadlineClientHttpRequestInterceptor.DEFAULT_HEADER + "}")
+    private String header;
+
+    @Value("${ignition.deadline.max-timeout:0}")
+    private long maxTimeout;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        String value = request.getHeader(header);
+
+        if (StringUtils.isNotEmpty(value)) {
+            long timeout = NumberUtils.toLong(value.trim(), -1);
+
+            if (timeout >= 0) {
+                if (maxTimeout > 0) {
+                    timeout = Math.min(timeout, maxTimeout);
+                }
+
+                request.setAttribute(Deadline.ATTRIBUTE, Deadline.after(timeout, TimeUnit.MILLISECONDS));
+            }
+        }
+
+        filterChain.doFilter(request, response);
+    }
+}
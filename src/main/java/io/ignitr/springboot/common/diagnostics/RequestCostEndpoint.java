@@ -0,0 +1,54 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.diagnostics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint that exposes the handlers with the highest CPU time and allocation totals recorded by the
+ * {@link RequestCostFilter}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "ignition.request-cost", name = "enabled", havingValue = "true")
+public class RequestCostEndpoint extends AbstractEndpoint<Map<String, Object>> {
+    private final RequestCostRegistry registry;
+    private final int topHandlers;
+
+    @Autowired
+    public RequestCostEndpoint(RequestCostRegistry registry,
+                               @Value("${ignition.request-cost.top-handlers:10}") int topHandlers) {
+        super("requestcost");
+        this.registry = registry;
+        this.topHandlers = topHandlers;
+    }
+
+    @Override
+    public Map<String, Object> invoke() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("cpuTime", registry.getTopByCpuTime(topHandlers));
+        result.put("allocatedBytes", registry.getTopByAllocatedBytes(topHandlers));
+
+        return result;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.diagnostics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.sleuth.Span;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Filter that records the CPU time and the bytes allocated by the request thread for each request, including the
+ * time spent in asynchronous re-dispatches, and reports the totals to the {@link RequestCostRegistry} under the
+ * name of the handler that processed the request.
+ */
+@Component
+@ConditionalOnProperty(prefix = "ignition.request-cost", name = "enabled", havingValue = "true")
+public class RequestCostFilter extends OncePerRequestFilter {
+    private static final Logger LOG = LoggerFactory.getLogger(RequestCostFilter.class);
+    private static final String COST_ATTRIBUTE = RequestCostFilter.class.getName() + ".COST";
+    private static final String UNMAPPED_HANDLER = "UNMAPPED";
+    private static final String OTHER_METHOD = "OTHER";
+
+    private final RequestCostRegistry registry;
+    private final com.sun.management.ThreadMXBean threadMXBean;
+
+    @Autowired
+    public RequestCostFilter(RequestCostRegistry registry) {
+        this.registry = registry;
+
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && bean.isCurrentThreadCpuTimeSupported()
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            this.threadMXBean = (com.sun.management.ThreadMXBean) bean;
+            this.threadMXBean.setThreadCpuTimeEnabled(true);
+            this.threadMXBean.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            LOG.warn("Thread CPU time and allocation accounting is not supported by this JVM. Request costs will not be recorded");
+            this.threadMXBean = null;
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        if (threadMXBean == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long startCpu = threadMXBean.getCurrentThreadCpuTime();
+        long startAllocated = threadMXBean.getThreadAllocatedBytes(threadId);
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            long cpu = threadMXBean.getCurrentThreadCpuTime() - startCpu;
+            long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - startAllocated;
+
+            // Accumulate the cost of every dispatch of the request and only report once the final dispatch is done
+            long[] cost = (long[]) request.getAttribute(COST_ATTRIBUTE);
+            if (cost == null) {
+                cost = new long[2];
+                request.setAttribute(COST_ATTRIBUTE, cost);
+            }
+
+            cost[0] += cpu;
+            cost[1] += allocated;
+
+            if (!request.isAsyncStarted()) {
+                registry.record(getHandler(request), MDC.get(Span.TRACE_ID_NAME), cost[0], cost[1]);
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    /**
+     * @param request http servlet request
+     * @return name of the handler that processed the request
+     */
+    private String getHandler(HttpServletRequest request) {
+        // The method is client controlled, so only standard methods are used to keep the number of handlers bounded
+        HttpMethod method = HttpMethod.resolve(request.getMethod());
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return (method != null ? method.name() : OTHER_METHOD) + " " + (pattern != null ? pattern : UNMAPPED_HANDLER);
+    }
+}
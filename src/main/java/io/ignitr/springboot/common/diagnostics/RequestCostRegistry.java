@@ -0,0 +1,287 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.diagnostics;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Aggregates the CPU time and allocated bytes recorded by the {@link RequestCostFilter} for each handler, keeping
+ * track of the trace identifiers of the most expensive individual requests.
+ */
+@Component
+@ConditionalOnProperty(prefix = "ignition.request-cost", name = "enabled", havingValue = "true")
+public class RequestCostRegistry {
+    private final Map<String, HandlerCost> handlers = new ConcurrentHashMap<>();
+    private final int topRequests;
+
+    @Autowired
+    public RequestCostRegistry(@Value("${ignition.request-cost.top-requests:5}") int topRequests) {
+        this.topRequests = topRequests;
+    }
+
+    /**
+     * Records the cost of a completed request.
+     *
+     * @param handler name of the handler that processed the request
+     * @param requestId distributed trace identifier of the request
+     * @param cpuTime CPU time, in nanoseconds, consumed by the request
+     * @param allocatedBytes bytes allocated by the request
+     */
+    public void record(String handler, String requestId, long cpuTime, long allocatedBytes) {
+        handlers.computeIfAbsent(handler, name -> new HandlerCost(name, topRequests))
+                .record(requestId, cpuTime, allocatedBytes);
+    }
+
+    /**
+     * @param limit maximum number of handlers to return
+     * @return handlers that consumed the most CPU time in total, most expensive first, with the requests that
+     * consumed the most CPU time
+     */
+    public List<HandlerCostSummary> getTopByCpuTime(int limit) {
+        return top(Comparator.comparingLong(HandlerCostSummary::getCpuTime), false, limit);
+    }
+
+    /**
+     * @param limit maximum number of handlers to return
+     * @return handlers that allocated the most bytes in total, most expensive first, with the requests that
+     * allocated the most bytes
+     */
+    public List<HandlerCostSummary> getTopByAllocatedBytes(int limit) {
+        return top(Comparator.comparingLong(HandlerCostSummary::getAllocatedBytes), true, limit);
+    }
+
+    private List<HandlerCostSummary> top(Comparator<HandlerCostSummary> comparator, boolean byAllocation, int limit) {
+        return handlers.values().stream()
+                .map(handler -> handler.summarize(byAllocation))
+                .sorted(comparator.reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Running totals for a single handler.
+     */
+    private static final class HandlerCost {
+        private final String handler;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder cpuTime = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final WorstRequests worstByCpuTime;
+        private final WorstRequests worstByAllocatedBytes;
+
+        HandlerCost(String handler, int topRequests) {
+            this.handler = handler;
+            this.worstByCpuTime = new WorstRequests(topRequests, false);
+            this.worstByAllocatedBytes = new WorstRequests(topRequests, true);
+        }
+
+        void record(String requestId, long cpuNanos, long allocated) {
+            long cpu = TimeUnit.NANOSECONDS.toMicros(cpuNanos);
+
+            count.increment();
+            cpuTime.add(cpu);
+            allocatedBytes.add(allocated);
+
+            worstByCpuTime.offer(requestId, cpu, allocated);
+            worstByAllocatedBytes.offer(requestId, cpu, allocated);
+        }
+
+        HandlerCostSummary summarize(boolean byAllocation) {
+            List<RequestCost> requests = (byAllocation ? worstByAllocatedBytes : worstByCpuTime).get();
+            return new HandlerCostSummary(handler, count.sum(), cpuTime.sum(), allocatedBytes.sum(), requests);
+        }
+    }
+
+    /**
+     * Most expensive requests of a handler ranked by a single metric.
+     */
+    private static final class WorstRequests {
+        private final RequestCost[] worst;
+        private final boolean byAllocation;
+        private volatile long threshold;
+
+        WorstRequests(int size, boolean byAllocation) {
+            this.worst = new RequestCost[size];
+            this.byAllocation = byAllocation;
+        }
+
+        void offer(String requestId, long cpu, long allocated) {
+            long value = byAllocation ? allocated : cpu;
+
+            // Only take the lock for requests that could displace one of the current worst offenders
+            if (worst.length == 0 || value <= threshold) {
+                return;
+            }
+
+            synchronized (worst) {
+                int cheapest = 0;
+                for (int i = 0; i < worst.length; i++) {
+                    if (worst[i] == null) {
+                        cheapest = i;
+                        break;
+                    }
+
+                    if (metric(worst[i]) < metric(worst[cheapest])) {
+                        cheapest = i;
+                    }
+                }
+
+                if (worst[cheapest] == null || metric(worst[cheapest]) < value) {
+                    worst[cheapest] = new RequestCost(requestId, cpu, allocated);
+                }
+
+                long lowest = Long.MAX_VALUE;
+                for (RequestCost entry : worst) {
+                    if (entry == null) {
+                        lowest = 0;
+                        break;
+                    }
+
+                    lowest = Math.min(lowest, metric(entry));
+                }
+
+                threshold = lowest;
+            }
+        }
+
+        List<RequestCost> get() {
+            List<RequestCost> requests;
+            synchronized (worst) {
+                requests = new ArrayList<>(Arrays.asList(worst));
+            }
+
+            requests.removeIf(cost -> cost == null);
+            requests.sort(Comparator.comparingLong(this::metric).reversed());
+            return requests;
+        }
+
+        private long metric(RequestCost cost) {
+            return byAllocation ? cost.getAllocatedBytes() : cost.getCpuTime();
+        }
+    }
+
+    /**
+     * Aggregated cost of a handler.
+     */
+    @JsonPropertyOrder({
+            "handler",
+            "count",
+            "cpuTime",
+            "allocatedBytes",
+            "averageCpuTime",
+            "averageAllocatedBytes",
+            "worstRequests"
+    })
+    public static final class HandlerCostSummary {
+        private final String handler;
+        private final long count;
+        private final long cpuTime;
+        private final long allocatedBytes;
+        private final List<RequestCost> worstRequests;
+
+        HandlerCostSummary(String handler, long count, long cpuTime, long allocatedBytes, List<RequestCost> worstRequests) {
+            this.handler = handler;
+            this.count = count;
+            this.cpuTime = cpuTime;
+            this.allocatedBytes = allocatedBytes;
+            this.worstRequests = worstRequests;
+        }
+
+        public String getHandler() {
+            return handler;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return total CPU time in microseconds
+         */
+        public long getCpuTime() {
+            return cpuTime;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        /**
+         * @return average CPU time per request in microseconds
+         */
+        public long getAverageCpuTime() {
+            return count > 0 ? cpuTime / count : 0;
+        }
+
+        public long getAverageAllocatedBytes() {
+            return count > 0 ? allocatedBytes / count : 0;
+        }
+
+        public List<RequestCost> getWorstRequests() {
+            return worstRequests;
+        }
+    }
+
+    /**
+     * Cost of a single request.
+     */
+    @JsonPropertyOrder({
+            "requestId",
+            "cpuTime",
+            "allocatedBytes"
+    })
+    public static final class RequestCost {
+        private final String requestId;
+        private final long cpuTime;
+        private final long allocatedBytes;
+
+        RequestCost(String requestId, long cpuTime, long allocatedBytes) {
+            this.requestId = requestId;
+            this.cpuTime = cpuTime;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        public String getRequestId() {
+            return requestId;
+        }
+
+        /**
+         * @return CPU time in microseconds
+         */
+        public long getCpuTime() {
+            return cpuTime;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+    }
+}
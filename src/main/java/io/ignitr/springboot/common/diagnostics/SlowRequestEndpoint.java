@@ -0,0 +1,45 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.diagnostics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Actuator endpoint that exposes the stack samples of the most recent slow requests captured by the
+ * {@link SlowRequestWatchdog}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "ignition.watchdog", name = "enabled", havingValue = "true")
+public class SlowRequestEndpoint extends AbstractEndpoint<List<SlowRequestRecord>> {
+    private final SlowRequestWatchdog watchdog;
+
+    @Autowired
+    public SlowRequestEndpoint(SlowRequestWatchdog watchdog) {
+        super("slowrequests");
+        this.watchdog = watchdog;
+    }
+
+    @Override
+    public List<SlowRequestRecord> invoke() {
+        return watchdog.getRecords();
+    }
+}
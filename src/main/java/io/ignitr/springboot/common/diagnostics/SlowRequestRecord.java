@@ -0,0 +1,134 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.diagnostics;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.util.List;
+
+/**
+ * Stack samples captured by the {@link SlowRequestWatchdog} for a request that exceeded the slow request threshold.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({
+        "timestamp",
+        "requestId",
+        "requestPath",
+        "resource",
+        "duration",
+        "inProgress",
+        "samples"
+})
+public final class SlowRequestRecord {
+    private final String timestamp;
+    private final String requestId;
+    private final String requestPath;
+    private final String resource;
+    private final long duration;
+    private final boolean inProgress;
+    private final List<Sample> samples;
+
+    /**
+     * Creates a new slow request record.
+     *
+     * @param timestamp time at which the request started
+     * @param requestId distributed trace identifier
+     * @param requestPath request URI
+     * @param resource deployment context of the application at the time of the request
+     * @param duration request duration in milliseconds, or time elapsed so far if the request is still in progress
+     * @param inProgress <code>true</code> if the request had not finished when the record was created
+     * @param samples stack samples captured while the request was running
+     */
+    public SlowRequestRecord(final String timestamp, final String requestId, final String requestPath, final String resource,
+                             final long duration, final boolean inProgress, final List<Sample> samples) {
+        this.timestamp = timestamp;
+        this.requestId = requestId;
+        this.requestPath = requestPath;
+        this.resource = resource;
+        this.duration = duration;
+        this.inProgress = inProgress;
+        this.samples = samples;
+    }
+
+    public String getTimestamp() {
+        return timestamp;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public String getRequestPath() {
+        return requestPath;
+    }
+
+    public String getResource() {
+        return resource;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public boolean isInProgress() {
+        return inProgress;
+    }
+
+    public List<Sample> getSamples() {
+        return samples;
+    }
+
+    /**
+     * Stack of the request thread captured at a point in time.
+     */
+    @JsonPropertyOrder({
+            "elapsed",
+            "threadName",
+            "stackTrace"
+    })
+    public static final class Sample {
+        private final long elapsed;
+        private final String threadName;
+        private final List<String> stackTrace;
+
+        /**
+         * Creates a new stack sample.
+         *
+         * @param elapsed milliseconds since the start of the request at which the sample was captured
+         * @param threadName name of the request thread
+         * @param stackTrace stack frames of the request thread
+         */
+        public Sample(final long elapsed, final String threadName, final List<String> stackTrace) {
+            this.elapsed = elapsed;
+            this.threadName = threadName;
+            this.stackTrace = stackTrace;
+        }
+
+        public long getElapsed() {
+            return elapsed;
+        }
+
+        public String getThreadName() {
+            return threadName;
+        }
+
+        public List<String> getStackTrace() {
+            return stackTrace;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.diagnostics;
+
+import io.ignitr.springboot.common.metadata.DeploymentContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Watches the requests that are in flight on servlet threads and captures the stack of any request that runs for
+ * longer than the configured threshold, so that latency outliers can be diagnosed without attaching a profiler.
+ *
+ * <p>
+ * Requests are registered by the {@link io.ignitr.springboot.common.tracing.TracingHandlerFilter} using their
+ * distributed trace identifier.  A single background timer scans the in-flight requests, so the only cost on the
+ * request thread is adding and removing an entry from a concurrent map.  Each slow request is sampled a bounded
+ * number of times and only the most recent slow requests are retained.  Requests that have exceeded the threshold
+ * are reported while they are still running, so requests that hang show up as well.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(prefix = "ignition.watchdog", name = "enabled", havingValue = "true")
+public class SlowRequestWatchdog {
+    private static final String ISO_DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSS zzz";
+    private static final TimeZone UTC_TIMEZONE = TimeZone.getTimeZone("UTC");
+
+    private final Timer timer = new Timer("SlowRequestWatchdogTimer", true);
+    private final Map<String, InFlightRequest> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedDeque<SlowRequestRecord> records = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger recordCount = new AtomicInteger();
+    private final DeploymentContext deploymentContext;
+    private final long threshold;
+    private final int maxSamples;
+    private final int maxRecords;
+
+    @Autowired
+    public SlowRequestWatchdog(DeploymentContext deploymentContext,
+                               @Value("${ignition.watchdog.threshold:1000}") long threshold,
+                               @Value("${ignition.watchdog.sample-interval:250}") long sampleInterval,
+                               @Value("${ignition.watchdog.max-samples:5}") int maxSamples,
+                               @Value("${ignition.watchdog.max-records:100}") int maxRecords) {
+        this.deploymentContext = deploymentContext;
+        this.threshold = TimeUnit.MILLISECONDS.toNanos(threshold);
+        this.maxSamples = maxSamples;
+        this.maxRecords = maxRecords;
+
+        timer.schedule(new SamplingTask(), sampleInterval, sampleInterval);
+    }
+
+    /**
+     * Starts watching a request that is being processed on the current thread.
+     *
+     * @param requestId distributed trace identifier of the request
+     * @param requestPath request URI
+     * @return handle that must be passed to {@link #end(InFlightRequest)} once the current thread has finished
+     * processing the request
+     */
+    public InFlightRequest begin(String requestId, String requestPath) {
+        InFlightRequest request = new InFlightRequest(requestId, requestPath, Thread.currentThread());
+        inFlight.put(request.key, request);
+        return request;
+    }
+
+    /**
+     * Stops watching a request and records its samples if it was found to be slow.
+     *
+     * @param request handle returned by {@link #begin(String, String)}
+     */
+    public void end(InFlightRequest request) {
+        inFlight.remove(request.key);
+
+        List<SlowRequestRecord.Sample> samples;
+        synchronized (request) {
+            request.finished = true;
+            samples = request.samples;
+        }
+
+        if (samples != null) {
+            records.addFirst(toRecord(request, false, samples));
+
+            if (recordCount.incrementAndGet() > maxRecords) {
+                records.pollLast();
+                recordCount.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @return the requests in flight that have exceeded the threshold, followed by the most recent slow requests
+     * that have finished, newest first
+     */
+    public List<SlowRequestRecord> getRecords() {
+        List<SlowRequestRecord> result = new ArrayList<>();
+
+        for (InFlightRequest request : inFlight.values()) {
+            List<SlowRequestRecord.Sample> samples;
+            synchronized (request) {
+                if (request.finished || request.samples == null) {
+                    continue;
+                }
+
+                samples = new ArrayList<>(request.samples);
+            }
+
+            result.add(toRecord(request, true, samples));
+        }
+
+        result.addAll(records);
+        return result;
+    }
+
+    private SlowRequestRecord toRecord(InFlightRequest request, boolean inProgress,
+                                       List<SlowRequestRecord.Sample> samples) {
+        final SimpleDateFormat sdf = new SimpleDateFormat(ISO_DATE_FORMAT);
+        sdf.setTimeZone(UTC_TIMEZONE);
+
+        return new SlowRequestRecord(sdf.format(new Date(request.startTimeMillis)),
+                request.requestId,
+                request.requestPath,
+                deploymentContext.toString(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - request.startTime),
+                inProgress,
+                samples);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.cancel();
+    }
+
+    /**
+     * Handle for a request that is being watched.
+     */
+    public static final class InFlightRequest {
+        private final String key;
+        private final String requestId;
+        private final String requestPath;
+        private final Thread thread;
+        private final long startTime = System.nanoTime();
+        private final long startTimeMillis = System.currentTimeMillis();
+        private List<SlowRequestRecord.Sample> samples;
+        private boolean finished;
+
+        private InFlightRequest(String requestId, String requestPath, Thread thread) {
+            // Asynchronous dispatches of the same request may overlap so the thread is part of the key
+            this.key = requestId + ":" + thread.getId();
+            this.requestId = requestId;
+            this.requestPath = requestPath;
+            this.thread = thread;
+        }
+    }
+
+    /**
+     * Task that captures the stacks of requests that have exceeded the threshold.
+     */
+    private class SamplingTask extends TimerTask {
+
+        @Override
+        public void run() {
+            long now = System.nanoTime();
+
+            for (InFlightRequest request : inFlight.values()) {
+                long elapsed = now - request.startTime;
+
+                if (elapsed < threshold) {
+                    continue;
+                }
+
+                synchronized (request) {
+                    if (request.finished || (request.samples != null && request.samples.size() >= maxSamples)) {
+                        continue;
+                    }
+
+                    StackTraceElement[] stack = request.thread.getStackTrace();
+                    List<String> frames = new ArrayList<>(stack.length);
+                    for (StackTraceElement frame : stack) {
+                        frames.add(frame.toString());
+                    }
+
+                    if (request.samples == null) {
+                        request.samples = new ArrayList<>(maxSamples);
+                    }
+
+                    request.samples.add(new SlowRequestRecord.Sample(TimeUnit.NANOSECONDS.toMillis(elapsed),
+                            request.thread.getName(),
+                            frames));
+                }
+            }
+        }
+    }
+}
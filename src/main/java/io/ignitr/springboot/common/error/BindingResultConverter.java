@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.error;
+
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.ObjectError;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts the validation errors of a {@link BindingResult} into the details and field errors of an
+ * {@link IgnitionError}.  Shared by {@link ObservableErrorHandler} and {@link IgnitionErrorAttributes}.
+ */
+final class BindingResultConverter {
+
+    private BindingResultConverter() {
+        // Static utility
+    }
+
+    /**
+     * @param result binding result
+     * @return detailed error message, which states when the errors were truncated
+     */
+    static String getDetails(BindingResult result) {
+        int count = 0;
+        boolean truncated = false;
+
+        for (ObjectError error : result.getAllErrors()) {
+            if (isTruncationMarker(error)) {
+                truncated = true;
+            } else {
+                count++;
+            }
+        }
+
+        String details = "Validation failed for '" + result.getObjectName() + "'. Error count: " + count;
+        if (truncated) {
+            details += ". The error list was truncated and further errors were not reported";
+        }
+
+        return details;
+    }
+
+    /**
+     * @param result binding result
+     * @return field errors of the binding result; global errors are included without a field
+     */
+    static List<IgnitionFieldError> getFieldErrors(BindingResult result) {
+        List<IgnitionFieldError> fieldErrors = new ArrayList<>(result.getErrorCount());
+
+        for (ObjectError error : result.getAllErrors()) {
+            if (isTruncationMarker(error)) {
+                continue;
+            }
+
+            String field = error instanceof FieldError ? ((FieldError) error).getField() : null;
+            fieldErrors.add(new IgnitionFieldError(field, error.getCode(), error.getDefaultMessage()));
+        }
+
+        return fieldErrors;
+    }
+
+    private static boolean isTruncationMarker(ObjectError error) {
+        return !(error instanceof FieldError)
+                && CommonErrorCode.VALIDATION_ERRORS_TRUNCATED.getValue().equals(error.getCode());
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.error;
+
+/**
+ * Enumeration of the error codes raised by the components within this library.
+ */
+public enum CommonErrorCode implements IgnitionErrorCode {
+    CONCURRENCY_LIMIT_EXCEEDED("CONCURRENCY_LIMIT_EXCEEDED"),
+    RATE_LIMIT_EXCEEDED("RATE_LIMIT_EXCEEDED"),
+    DEADLINE_EXCEEDED("DEADLINE_EXCEEDED"),
+    REQUEST_TIMEOUT("REQUEST_TIMEOUT"),
+    BULKHEAD_REJECTED("BULKHEAD_REJECTED"),
+    BATCH_ITEM_NOT_FOUND("BATCH_ITEM_NOT_FOUND"),
+    BATCH_LOAD_FAILED("BATCH_LOAD_FAILED"),
+    FAN_OUT_PARTIAL_FAILURE("FAN_OUT_PARTIAL_FAILURE"),
+    FAN_OUT_CALL_FAILED("FAN_OUT_CALL_FAILED"),
+    FAN_OUT_CALL_TIMEOUT("FAN_OUT_CALL_TIMEOUT"),
+    VALIDATION_ERRORS_TRUNCATED("VALIDATION_ERRORS_TRUNCATED"),
+    VALIDATION_TIMEOUT("VALIDATION_TIMEOUT");
+
+    private final String value;
+
+    CommonErrorCode(final String value) {
+        this.value = value;
+    }
+
+    @Override
+    public String getValue() {
+        return value;
+    }
+}
@@ -26,8 +26,6 @@ import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpStatus;
 import org.springframework.validation.BindingResult;
-import org.springframework.validation.FieldError;
-import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.servlet.HandlerExceptionResolver;
@@ -36,10 +34,8 @@ import org.springframework.web.servlet.ModelAndView;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
 
@@ -233,8 +229,7 @@ public class IgnitionErrorAttributes implements ErrorAttributes, HandlerExceptio
         }
 
         if (result.getErrorCount() > 0) {
-            errorAttributes.put("details", "Validation failed for '" + result.getObjectName()
-                    + "'. Error count: " + result.getErrorCount());
+            errorAttributes.put("details", BindingResultConverter.getDetails(result));
         } else {
             // Don't divulge detailed error information on unhandled exceptions
             if (error instanceof IgnitionException) {
@@ -256,16 +251,7 @@ public class IgnitionErrorAttributes implements ErrorAttributes, HandlerExceptio
         BindingResult result = extractBindingResult(error);
         if (result != null) {
             if (result.getErrorCount() > 0) {
-                List<IgnitionFieldError> fieldErrors = new ArrayList<>(result.getErrorCount());
-
-                for (ObjectError objError : result.getAllErrors()) {
-                    String field = ((FieldError) objError).getField();
-                    String message = objError.getDefaultMessage();
-
-                    fieldErrors.add(new IgnitionFieldError(field, message));
-                }
-
-                errorAttributes.put("fieldErrors", fieldErrors);
+                errorAttributes.put("fieldErrors", BindingResultConverter.getFieldErrors(result));
             }
         }
 
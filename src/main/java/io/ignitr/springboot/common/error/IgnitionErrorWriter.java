@@ -0,0 +1,60 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.error;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Writes {@link IgnitionError} responses directly to the servlet response.  This is used by components, such as
+ * servlet filters, that need to reject a request before it reaches a controller and therefore cannot rely on
+ * {@link IgnitionErrorAdvice}.
+ */
+@Component
+public class IgnitionErrorWriter {
+    private final ObservableErrorHandler errorHandler;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public IgnitionErrorWriter(ObservableErrorHandler errorHandler, ObjectMapper objectMapper) {
+        this.errorHandler = errorHandler;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Writes the {@link IgnitionError} for the supplied {@link Throwable} to the response.
+     *
+     * @param request   http servlet request
+     * @param response  http servlet response
+     * @param throwable error to write
+     * @throws IOException if the error could not be written to the response
+     */
+    public void write(HttpServletRequest request, HttpServletResponse response, Throwable throwable) throws IOException {
+        ResponseEntity<IgnitionError> error = errorHandler.handleError(request, throwable);
+
+        response.setStatus(error.getStatusCode().value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), error.getBody());
+    }
+}
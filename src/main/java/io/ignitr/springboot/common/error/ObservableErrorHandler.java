@@ -10,13 +10,10 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.BindingResult;
-import org.springframework.validation.FieldError;
-import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 
 import javax.servlet.http.HttpServletRequest;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.TimeZone;
@@ -78,9 +75,12 @@ public class ObservableErrorHandler {
         }
 
         // Use the tracing id for the request id, when available
-        String traceId = Span.idToHex(tracer.getCurrentSpan().getTraceId());
-        if (StringUtils.isNotEmpty(traceId)) {
-            requestId = traceId;
+        Span span = tracer.getCurrentSpan();
+        if (span != null) {
+            String traceId = Span.idToHex(span.getTraceId());
+            if (StringUtils.isNotEmpty(traceId)) {
+                requestId = traceId;
+            }
         }
 
         return new ResponseEntity<>(
@@ -115,7 +115,7 @@ public class ObservableErrorHandler {
         }
 
         if (result.getErrorCount() > 0) {
-            return "Validation failed for '" + result.getObjectName() + "'. Error count: " + result.getErrorCount();
+            return BindingResultConverter.getDetails(result);
         } else {
             // Don't divulge detailed error information on unhandled exceptions
             if (error instanceof IgnitionException) {
@@ -137,16 +137,7 @@ public class ObservableErrorHandler {
         BindingResult result = extractBindingResult(error);
         if (result != null) {
             if (result.getErrorCount() > 0) {
-                List<IgnitionFieldError> fieldErrors = new ArrayList<>(result.getErrorCount());
-
-                for (ObjectError objError : result.getAllErrors()) {
-                    String field = ((FieldError) objError).getField();
-                    String message = objError.getDefaultMessage();
-
-                    fieldErrors.add(new IgnitionFieldError(field, message));
-                }
-
-                return fieldErrors;
+                return BindingResultConverter.getFieldErrors(result);
             }
         }
 
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.limit;
+
+import io.ignitr.springboot.common.error.CommonErrorCode;
+import io.ignitr.springboot.common.error.IgnitionErrorWriter;
+import io.ignitr.springboot.common.error.IgnitionRuntimeException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Filter that caps the number of in-flight requests for each configured endpoint group using an adaptive
+ * {@link GradientLimit}.  Requests that exceed the current limit are rejected immediately with a 503 - Service
+ * Unavailable {@link io.ignitr.springboot.common.error.IgnitionError} instead of being queued by the container.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnProperty(prefix = "ignition.limiter.concurrency", name = "enabled", havingValue = "true")
+public class ConcurrencyLimitFilter extends OncePerRequestFilter implements PublicMetrics {
+    private static final String DEFAULT_GROUP = "default";
+
+    private final IgnitionErrorWriter errorWriter;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+    private final Map<String, List<String>> groupPatterns;
+    private final Map<String, ConcurrencyLimiter> limiters = new LinkedHashMap<>();
+
+    @Autowired
+    public ConcurrencyLimitFilter(ConcurrencyLimitProperties properties, IgnitionErrorWriter errorWriter) {
+        this.errorWriter = errorWriter;
+        this.groupPatterns = new LinkedHashMap<>(properties.getGroups());
+
+        for (String group : groupPatterns.keySet()) {
+            limiters.put(group, createLimiter(group, properties));
+        }
+
+        limiters.put(DEFAULT_GROUP, createLimiter(DEFAULT_GROUP, properties));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        ConcurrencyLimiter limiter = getLimiter(request);
+
+        int inFlight = limiter.tryAcquire();
+        if (inFlight < 0) {
+            errorWriter.write(request, response, new IgnitionRuntimeException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Concurrency limit exceeded for '" + limiter.getName() + "'",
+                    CommonErrorCode.CONCURRENCY_LIMIT_EXCEEDED));
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        boolean async = false;
+
+        try {
+            filterChain.doFilter(request, response);
+
+            if (request.isAsyncStarted()) {
+                // Hold on to the slot until the asynchronous processing of the request has finished
+                request.getAsyncContext().addListener(new ReleasingAsyncListener(limiter, startTime, inFlight));
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                limiter.release(startTime, inFlight);
+            }
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+
+        for (ConcurrencyLimiter limiter : limiters.values()) {
+            String prefix = "limiter.concurrency." + limiter.getName();
+
+            metrics.add(new Metric<>(prefix + ".limit", limiter.getLimit()));
+            metrics.add(new Metric<>(prefix + ".inflight", limiter.getInFlight()));
+            metrics.add(new Metric<>(prefix + ".accepted", limiter.getAccepted()));
+            metrics.add(new Metric<>(prefix + ".rejected", limiter.getRejected()));
+        }
+
+        return metrics;
+    }
+
+    /**
+     * Finds the limiter for the endpoint group that the request belongs to.
+     *
+     * @param request http servlet request
+     * @return the matching group limiter or the default limiter if the request does not match any group
+     */
+    private ConcurrencyLimiter getLimiter(HttpServletRequest request) {
+        String path = urlPathHelper.getPathWithinApplication(request);
+
+        for (Map.Entry<String, List<String>> group : groupPatterns.entrySet()) {
+            for (String pattern : group.getValue()) {
+                if (pathMatcher.match(pattern, path)) {
+                    return limiters.get(group.getKey());
+                }
+            }
+        }
+
+        return limiters.get(DEFAULT_GROUP);
+    }
+
+    private static ConcurrencyLimiter createLimiter(String name, ConcurrencyLimitProperties properties) {
+        return new ConcurrencyLimiter(name, new GradientLimit(properties.getInitialLimit(),
+                properties.getMinLimit(),
+                properties.getMaxLimit(),
+                properties.getSmoothing(),
+                properties.getMinRttResetSamples()));
+    }
+
+    /**
+     * Releases the limiter slot held by an asynchronous request once it has completed.
+     */
+    private static class ReleasingAsyncListener implements AsyncListener {
+        private final ConcurrencyLimiter limiter;
+        private final long startTime;
+        private final int inFlight;
+
+        ReleasingAsyncListener(ConcurrencyLimiter limiter, long startTime, int inFlight) {
+            this.limiter = limiter;
+            this.startTime = startTime;
+            this.inFlight = inFlight;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) throws IOException {
+            limiter.release(startTime, inFlight);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) throws IOException {
+            // Noop - onComplete is always called after a timeout
+        }
+
+        @Override
+        public void onError(AsyncEvent event) throws IOException {
+            // Noop - onComplete is always called after an error
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) throws IOException {
+            // Listeners are cleared when asynchronous processing is restarted so re-register
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
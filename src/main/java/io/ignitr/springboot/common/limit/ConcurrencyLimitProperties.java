@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.limit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Configuration for the {@link ConcurrencyLimitFilter}.
+ *
+ * <p>
+ * Endpoint groups are configured as a map of group name to ant-style path patterns, for example:
+ * <pre>
+ * ignition.limiter.concurrency.enabled=true
+ * ignition.limiter.concurrency.groups.search=/search/**,/suggest/**
+ * </pre>
+ * Requests that do not match any group are limited by the "default" group.
+ * </p>
+ */
+@Component
+@ConfigurationProperties(prefix = "ignition.limiter.concurrency")
+public class ConcurrencyLimitProperties {
+    private boolean enabled;
+    private int initialLimit = 20;
+    private int minLimit = 1;
+    private int maxLimit = 200;
+    private double smoothing = 0.2;
+    private int minRttResetSamples = 1000;
+    private Map<String, List<String>> groups = new LinkedHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    public void setInitialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    public double getSmoothing() {
+        return smoothing;
+    }
+
+    public void setSmoothing(double smoothing) {
+        this.smoothing = smoothing;
+    }
+
+    public int getMinRttResetSamples() {
+        return minRttResetSamples;
+    }
+
+    public void setMinRttResetSamples(int minRttResetSamples) {
+        this.minRttResetSamples = minRttResetSamples;
+    }
+
+    public Map<String, List<String>> getGroups() {
+        return groups;
+    }
+
+    public void setGroups(Map<String, List<String>> groups) {
+        this.groups = groups;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps the number of in-flight requests for a group of endpoints using a {@link GradientLimit}.
+ */
+public class ConcurrencyLimiter {
+    private final String name;
+    private final GradientLimit limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Initializes this instance of {@link ConcurrencyLimiter}.
+     *
+     * @param name name of the endpoint group
+     * @param limit adaptive limit applied to the endpoint group
+     */
+    public ConcurrencyLimiter(String name, GradientLimit limit) {
+        this.name = name;
+        this.limit = limit;
+    }
+
+    /**
+     * Attempts to reserve a slot for a new request.
+     *
+     * @return the number of requests in flight, including this one, if a slot was reserved; otherwise <code>-1</code>
+     */
+    public int tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+
+            if (current >= limit.getLimit()) {
+                rejected.increment();
+                return -1;
+            }
+
+            if (inFlight.compareAndSet(current, current + 1)) {
+                accepted.increment();
+                return current + 1;
+            }
+        }
+    }
+
+    /**
+     * Releases a slot previously reserved with {@link #tryAcquire()}.
+     *
+     * @param startTime time, as returned by {@link System#nanoTime()}, at which the request started
+     * @param inFlightAtStart value returned by {@link #tryAcquire()} when the request started
+     */
+    public void release(long startTime, int inFlightAtStart) {
+        inFlight.decrementAndGet();
+        limit.onSample(System.nanoTime() - startTime, inFlightAtStart);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        return limit.getLimit();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getAccepted() {
+        return accepted.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
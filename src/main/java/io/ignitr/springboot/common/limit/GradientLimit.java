@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.limit;
+
+/**
+ * Adaptive concurrency limit that adjusts itself based upon the gradient between the lowest observed request
+ * latency and the current request latency.
+ *
+ * <p>
+ * When latency rises above the no-load latency the limit is reduced proportionally, and when latency is at or near
+ * the no-load latency the limit is allowed to grow by a small queue allowance.  The no-load latency is periodically
+ * forgotten so that the limit can recover after the characteristics of the service change.
+ * </p>
+ */
+public class GradientLimit {
+    private static final long NO_RTT = Long.MAX_VALUE;
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final int minRttResetSamples;
+
+    private volatile int limit;
+    private long minRtt = NO_RTT;
+    private int samples;
+
+    /**
+     * Initializes this instance of {@link GradientLimit}.
+     *
+     * @param initialLimit initial concurrency limit
+     * @param minLimit lowest concurrency limit that will ever be applied
+     * @param maxLimit highest concurrency limit that will ever be applied
+     * @param smoothing factor between 0 and 1 controlling how quickly the limit moves towards a new estimate
+     * @param minRttResetSamples number of samples after which the no-load latency is re-learned
+     */
+    public GradientLimit(int initialLimit, int minLimit, int maxLimit, double smoothing, int minRttResetSamples) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Concurrency limits must satisfy 1 <= minLimit <= maxLimit");
+        }
+
+        if (smoothing <= 0.0 || smoothing > 1.0) {
+            throw new IllegalArgumentException("Smoothing must be greater than 0 and less than or equal to 1");
+        }
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.minRttResetSamples = minRttResetSamples;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * @return current concurrency limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Updates the limit with a latency sample from a completed request.
+     *
+     * @param rtt request latency in nanoseconds
+     * @param inFlight number of requests that were in flight when the sampled request started
+     */
+    public synchronized void onSample(long rtt, int inFlight) {
+        if (rtt <= 0) {
+            return;
+        }
+
+        if (++samples >= minRttResetSamples) {
+            // Forget the no-load latency so that it can be re-learned from the current samples
+            samples = 0;
+            minRtt = NO_RTT;
+        }
+
+        if (rtt < minRtt) {
+            minRtt = rtt;
+        }
+
+        // Don't grow the limit when the service isn't using the capacity it already has
+        if (inFlight < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, (double) minRtt / rtt));
+        double queueSize = Math.sqrt(limit);
+        double estimate = limit * gradient + queueSize;
+        double smoothed = limit * (1 - smoothing) + estimate * smoothing;
+
+        limit = (int) Math.max(minLimit, Math.min(maxLimit, smoothed));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.limit;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import io.ignitr.springboot.common.error.CommonErrorCode;
+import io.ignitr.springboot.common.error.IgnitionErrorWriter;
+import io.ignitr.springboot.common.error.IgnitionRuntimeException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Filter that limits the rate of requests made by each client using a {@link TokenBucket} per client key.
+ *
+ * <p>
+ * Buckets are held in a striped cache that is bounded by the number of keys and evicts idle keys, so a large
+ * number of distinct clients neither contend on a single lock nor grow memory without limit.  Requests that exceed
+ * the rate are rejected with a 429 - Too Many Requests {@link io.ignitr.springboot.common.error.IgnitionError} and
+ * a <code>Retry-After</code> header.
+ * </p>
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 8)
+@ConditionalOnProperty(prefix = "ignition.limiter.rate", name = "enabled", havingValue = "true")
+public class RateLimitFilter extends OncePerRequestFilter implements PublicMetrics {
+    private final IgnitionErrorWriter errorWriter;
+    private final RateLimitKeyExtractor keyExtractor;
+    private final LoadingCache<String, TokenBucket> buckets;
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    @Autowired
+    public RateLimitFilter(RateLimitProperties properties,
+                           IgnitionErrorWriter errorWriter,
+                           Optional<RateLimitKeyExtractor> keyExtractor) {
+        this.errorWriter = errorWriter;
+        this.keyExtractor = keyExtractor.orElseGet(() -> RateLimitKeyExtractor.parse(properties.getKey()));
+        this.buckets = CacheBuilder.newBuilder()
+                .concurrencyLevel(properties.getConcurrencyLevel())
+                .maximumSize(properties.getMaximumKeys())
+                .expireAfterAccess(properties.getExpireAfterAccessSeconds(), TimeUnit.SECONDS)
+                .build(new CacheLoader<String, TokenBucket>() {
+                    @Override
+                    public TokenBucket load(String key) throws Exception {
+                        return new TokenBucket(properties.getPermitsPerSecond(), properties.getBurst());
+                    }
+                });
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        String key = keyExtractor.extract(request);
+        if (key == null) {
+            // Clients that do not supply a key are limited by their address
+            key = request.getRemoteAddr();
+        }
+
+        long wait = buckets.getUnchecked(key).tryAcquire(System.nanoTime());
+        if (wait > 0) {
+            rejected.increment();
+
+            long retryAfter = Math.max(1, (long) Math.ceil((double) wait / TimeUnit.SECONDS.toNanos(1)));
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+            errorWriter.write(request, response, new IgnitionRuntimeException(HttpStatus.TOO_MANY_REQUESTS,
+                    "Rate limit exceeded. Retry after " + retryAfter + " seconds",
+                    CommonErrorCode.RATE_LIMIT_EXCEEDED));
+            return;
+        }
+
+        accepted.increment();
+        filterChain.doFilter(request, response);
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("limiter.rate.keys", buckets.size()));
+        metrics.add(new Metric<>("limiter.rate.accepted", accepted.sum()));
+        metrics.add(new Metric<>("limiter.rate.rejected", rejected.sum()));
+
+        return metrics;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.limit;
+
+import org.apache.commons.lang3.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Extracts the key identifying the client that a request is rate limited against.
+ */
+@FunctionalInterface
+public interface RateLimitKeyExtractor {
+    String HEADER_PREFIX = "header:";
+    String PARAMETER_PREFIX = "parameter:";
+    String REMOTE_ADDRESS = "remote-address";
+
+    /**
+     * Extracts the client key from the request.
+     *
+     * @param request http servlet request
+     * @return client key or <code>null</code> if the request does not contain a key
+     */
+    String extract(HttpServletRequest request);
+
+    /**
+     * @param name header name
+     * @return extractor that uses the value of the named header as the key
+     */
+    static RateLimitKeyExtractor header(String name) {
+        return request -> request.getHeader(name);
+    }
+
+    /**
+     * @param name query parameter name
+     * @return extractor that uses the value of the named query parameter, such as an api key, as the key
+     */
+    static RateLimitKeyExtractor parameter(String name) {
+        return request -> request.getParameter(name);
+    }
+
+    /**
+     * @return extractor that uses the remote address of the client as the key
+     */
+    static RateLimitKeyExtractor remoteAddress() {
+        return HttpServletRequest::getRemoteAddr;
+    }
+
+    /**
+     * Creates an extractor from its configuration value.
+     *
+     * <p>Valid values are:
+     * <ul>
+     *  <li>header:{name}</li>
+     *  <li>parameter:{name}</li>
+     *  <li>remote-address</li>
+     * </ul>
+     *
+     * @param value extractor configuration value
+     * @return key extractor
+     */
+    static RateLimitKeyExtractor parse(String value) {
+        if (StringUtils.startsWith(value, HEADER_PREFIX)) {
+            return header(value.substring(HEADER_PREFIX.length()));
+        } else if (StringUtils.startsWith(value, PARAMETER_PREFIX)) {
+            return parameter(value.substring(PARAMETER_PREFIX.length()));
+        } else if (REMOTE_ADDRESS.equals(value)) {
+            return remoteAddress();
+        }
+
+        throw new IllegalArgumentException("The rate limit key '" + value + "' is not supported.  Supported keys are: ["
+                + HEADER_PREFIX + "{name}, " + PARAMETER_PREFIX + "{name}, " + REMOTE_ADDRESS + "]");
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.limit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration for the {@link RateLimitFilter}.
+ *
+ * <p>
+ * The key determines how clients are identified and must be one of the values supported by
+ * {@link RateLimitKeyExtractor#parse(String)}, for example:
+ * <pre>
+ * ignition.limiter.rate.enabled=true
+ * ignition.limiter.rate.key=header:X-Api-Key
+ * ignition.limiter.rate.permits-per-second=50
+ * </pre>
+ * </p>
+ */
+@Component
+@ConfigurationProperties(prefix = "ignition.limiter.rate")
+public class RateLimitProperties {
+    private boolean enabled;
+    private String key = RateLimitKeyExtractor.REMOTE_ADDRESS;
+    private double permitsPerSecond = 100;
+    private int burst = 100;
+    private long maximumKeys = 100000;
+    private long expireAfterAccessSeconds = 300;
+    private int concurrencyLevel = 64;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public void setPermitsPerSecond(double permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public void setBurst(int burst) {
+        this.burst = burst;
+    }
+
+    public long getMaximumKeys() {
+        return maximumKeys;
+    }
+
+    public void setMaximumKeys(long maximumKeys) {
+        this.maximumKeys = maximumKeys;
+    }
+
+    public long getExpireAfterAccessSeconds() {
+        return expireAfterAccessSeconds;
+    }
+
+    public void setExpireAfterAccessSeconds(long expireAfterAccessSeconds) {
+        this.expireAfterAccessSeconds = expireAfterAccessSeconds;
+    }
+
+    public int getConcurrencyLevel() {
+        return concurrencyLevel;
+    }
+
+    public void setConcurrencyLevel(int concurrencyLevel) {
+        this.concurrencyLevel = concurrencyLevel;
+    }
+}
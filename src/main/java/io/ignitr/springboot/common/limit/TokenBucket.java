@@ -0,0 +1,72 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket.
+ *
+ * <p>
+ * The bucket is implemented as a generic cell rate algorithm, which tracks only the theoretical arrival time of
+ * the next request.  This keeps the entire state of the bucket in a single {@link AtomicLong} so that it can be
+ * updated with one compare-and-set and without a refill timer.
+ * </p>
+ */
+public class TokenBucket {
+    private final long emissionInterval;
+    private final long burstTolerance;
+    private final AtomicLong theoreticalArrivalTime = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Initializes this instance of {@link TokenBucket}.
+     *
+     * @param permitsPerSecond rate at which tokens are added to the bucket
+     * @param burst maximum number of tokens the bucket can hold
+     */
+    public TokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate and burst must be greater than zero");
+        }
+
+        this.emissionInterval = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.burstTolerance = emissionInterval * burst;
+    }
+
+    /**
+     * Attempts to take a token from the bucket.
+     *
+     * @param now current time, as returned by {@link System#nanoTime()}
+     * @return <code>0</code> if a token was taken; otherwise the number of nanoseconds until a token is available
+     */
+    public long tryAcquire(long now) {
+        while (true) {
+            long current = theoreticalArrivalTime.get();
+            long next = Math.max(current, now) + emissionInterval;
+            long wait = next - now - burstTolerance;
+
+            if (wait > 0) {
+                return wait;
+            }
+
+            if (theoreticalArrivalTime.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import com.google.common.base.Throwables;
+import io.ignitr.springboot.common.error.CommonErrorCode;
+import io.ignitr.springboot.common.error.IgnitionException;
+import io.ignitr.springboot.common.error.IgnitionRuntimeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.http.HttpStatus;
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.functions.Func1;
+import rx.schedulers.Schedulers;
+import rx.subjects.AsyncSubject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects individual key lookups made by concurrent requests into batches that are loaded with a single bulk call.
+ *
+ * <p>
+ * A batch is flushed once it holds the maximum number of keys or once the maximum wait has passed since its first
+ * key was added, whichever comes first.  Lookups of the same key within a batch share one entry.  Each value returned
+ * by the bulk loader is routed back to the subscribers that asked for its key, within their own request context.
+ * Keys that the bulk loader does not return fail with a 404 {@link IgnitionRuntimeException}, and a failed bulk call
+ * fails every key of the batch with the {@link IgnitionException} that caused it or with a 500
+ * {@link IgnitionRuntimeException}.
+ * </p>
+ *
+ * <p>
+ * The bulk loader is subscribed to on the thread that flushes the batch, which is either a requesting thread or a
+ * thread of the timer scheduler, so it should not block.  Declaring an instance as a bean publishes the number of
+ * batches and keys as metrics.
+ * </p>
+ *
+ * <pre>
+ * BatchLoader&lt;Long, Customer&gt; customers = BatchLoader.&lt;Long, Customer&gt;builder("customers")
+ *         .maxBatchSize(100)
+ *         .maxWait(5, TimeUnit.MILLISECONDS)
+ *         .build(ids -&gt; customerRepository.findAllById(ids));
+ *
+ * orders.flatMap(order -&gt; customers.load(order.getCustomerId()))
+ * </pre>
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class BatchLoader<K, V> implements PublicMetrics {
+    private static final Logger LOG = LoggerFactory.getLogger(BatchLoader.class);
+
+    private final String name;
+    private final int maxBatchSize;
+    private final long maxWait;
+    private final Scheduler scheduler;
+    private final Func1<Collection<K>, Observable<Map<K, V>>> bulkLoader;
+    private final Object lock = new Object();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong keys = new AtomicLong();
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong sizeFlushes = new AtomicLong();
+    private Batch<K, V> current;
+
+    private BatchLoader(Builder<K, V> builder, Func1<Collection<K>, Observable<Map<K, V>>> bulkLoader) {
+        this.name = builder.name;
+        this.maxBatchSize = builder.maxBatchSize;
+        this.maxWait = builder.maxWait;
+        this.scheduler = builder.scheduler;
+        this.bulkLoader = bulkLoader;
+    }
+
+    /**
+     * Creates a builder for a {@link BatchLoader}.
+     *
+     * @param name name used for the metrics of the loader
+     * @param <K>  key type
+     * @param <V>  value type
+     * @return loader builder
+     */
+    public static <K, V> Builder<K, V> builder(String name) {
+        return new Builder<>(name);
+    }
+
+    /**
+     * Adds the key to the current batch.  The key is added on subscription.  The value is delivered within the
+     * request context of the calling thread, if it has one, so this may also be called from within operators running
+     * outside of a request.
+     *
+     * @param key key to load
+     * @return Observable emitting the value for the key once its batch has been loaded
+     */
+    public Observable<V> load(K key) {
+        RequestContextStashOperator<V> stash = RequestContextStashOperator.ifPresent();
+
+        return Observable.defer(() -> enqueue(key)).lift(stash);
+    }
+
+    /**
+     * Creates a transformer that loads the value of every key emitted by an Observable through this loader.  Values
+     * are emitted in the order of their keys.
+     *
+     * @return transformer of keys into values
+     */
+    public Observable.Transformer<K, V> loadEach() {
+        return keys -> keys.concatMapEager(this::load);
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+
+        String prefix = "batchloader." + name;
+        metrics.add(new Metric<>(prefix + ".batches", batches.get()));
+        metrics.add(new Metric<>(prefix + ".keys", keys.get()));
+        metrics.add(new Metric<>(prefix + ".lookups", lookups.get()));
+        metrics.add(new Metric<>(prefix + ".sizeflushes", sizeFlushes.get()));
+
+        return metrics;
+    }
+
+    private Observable<V> enqueue(K key) {
+        lookups.incrementAndGet();
+
+        Batch<K, V> full = null;
+        AsyncSubject<V> subject;
+
+        synchronized (lock) {
+            if (current == null) {
+                Batch<K, V> batch = new Batch<>();
+                batch.timer = scheduler.createWorker();
+                batch.timer.schedule(() -> flushExpired(batch), maxWait, TimeUnit.NANOSECONDS);
+                current = batch;
+            }
+
+            subject = current.subjects.get(key);
+            if (subject == null) {
+                subject = AsyncSubject.create();
+                current.subjects.put(key, subject);
+            }
+
+            if (current.subjects.size() >= maxBatchSize) {
+                full = current;
+                current = null;
+            }
+        }
+
+        if (full != null) {
+            sizeFlushes.incrementAndGet();
+            full.timer.unsubscribe();
+            flush(full);
+        }
+
+        return subject;
+    }
+
+    private void flushExpired(Batch<K, V> batch) {
+        synchronized (lock) {
+            if (current != batch) {
+                // Already flushed because it was full
+                return;
+            }
+
+            current = null;
+        }
+
+        batch.timer.unsubscribe();
+        flush(batch);
+    }
+
+    private void flush(Batch<K, V> batch) {
+        batches.incrementAndGet();
+        keys.addAndGet(batch.subjects.size());
+
+        Observable<Map<K, V>> results;
+        try {
+            results = bulkLoader.call(new ArrayList<>(batch.subjects.keySet()));
+        } catch (Throwable e) {
+            results = Observable.error(e);
+        }
+
+        results.subscribe(new Subscriber<Map<K, V>>() {
+            @Override
+            public void onNext(Map<K, V> values) {
+                for (Map.Entry<K, V> entry : values.entrySet()) {
+                    AsyncSubject<V> subject = batch.subjects.remove(entry.getKey());
+                    if (subject != null) {
+                        subject.onNext(entry.getValue());
+                        subject.onCompleted();
+                    }
+                }
+            }
+
+            @Override
+            public void onCompleted() {
+                for (Map.Entry<K, AsyncSubject<V>> entry : batch.subjects.entrySet()) {
+                    entry.getValue().onError(new IgnitionRuntimeException(HttpStatus.NOT_FOUND,
+                            "No value was found for key '" + entry.getKey() + "'", CommonErrorCode.BATCH_ITEM_NOT_FOUND));
+                }
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                LOG.warn("Batch load of {} keys failed for loader '{}'", batch.subjects.size(), name, e);
+
+                for (Map.Entry<K, AsyncSubject<V>> entry : batch.subjects.entrySet()) {
+                    entry.getValue().onError(toItemError(entry.getKey(), e));
+                }
+            }
+        });
+    }
+
+    /**
+     * Maps the failure of a bulk call to the error of one of its keys.  Errors with an {@link IgnitionException} as
+     * root cause already carry a status and are passed on as they are.
+     */
+    private Throwable toItemError(K key, Throwable e) {
+        if (Throwables.getRootCause(e) instanceof IgnitionException) {
+            return e;
+        }
+
+        return new IgnitionRuntimeException(HttpStatus.INTERNAL_SERVER_ERROR,
+                "Unable to load the value for key '" + key + "'", CommonErrorCode.BATCH_LOAD_FAILED);
+    }
+
+    /**
+     * Keys collected into a batch and the subjects that deliver their values.  Only modified under the lock of the
+     * loader until the batch is flushed, after which it is only used by the bulk call subscriber.
+     *
+     * @param <K> key type
+     * @param <V> value type
+     */
+    private static class Batch<K, V> {
+        private final Map<K, AsyncSubject<V>> subjects = new LinkedHashMap<>();
+        private Scheduler.Worker timer;
+    }
+
+    /**
+     * Builder for a {@link BatchLoader}.
+     *
+     * @param <K> key type
+     * @param <V> value type
+     */
+    public static class Builder<K, V> {
+        private final String name;
+        private int maxBatchSize = 100;
+        private long maxWait = TimeUnit.MILLISECONDS.toNanos(10);
+        private Scheduler scheduler = Schedulers.computation();
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @param maxBatchSize maximum number of keys in a batch
+         * @return this builder
+         */
+        public Builder<K, V> maxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * @param duration maximum time a key waits for its batch to be flushed
+         * @param unit     unit of the duration
+         * @return this builder
+         */
+        public Builder<K, V> maxWait(long duration, TimeUnit unit) {
+            this.maxWait = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * @param scheduler scheduler that flushes batches once their maximum wait has passed
+         * @return this builder
+         */
+        public Builder<K, V> scheduler(Scheduler scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * @param bulkLoader function that loads the values of a batch of keys, emitting maps of key to value
+         * @return the loader
+         */
+        public BatchLoader<K, V> build(Func1<Collection<K>, Observable<Map<K, V>>> bulkLoader) {
+            return new BatchLoader<>(this, bulkLoader);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configuration for the {@link BulkheadSchedulers}.
+ *
+ * <p>
+ * Bulkheads are configured as a map of bulkhead name to pool settings, for example:
+ * <pre>
+ * ignition.rx.bulkhead.pools.inventory.threads=10
+ * ignition.rx.bulkhead.pools.inventory.queue-size=50
+ * ignition.rx.bulkhead.pools.pricing.threads=4
+ * </pre>
+ * </p>
+ */
+@Component
+@ConfigurationProperties(prefix = "ignition.rx.bulkhead")
+public class BulkheadProperties {
+    private Map<String, Pool> pools = new LinkedHashMap<>();
+
+    public Map<String, Pool> getPools() {
+        return pools;
+    }
+
+    public void setPools(Map<String, Pool> pools) {
+        this.pools = pools;
+    }
+
+    /**
+     * Settings of a single bulkhead.
+     */
+    public static class Pool {
+        private int threads = 10;
+        private int queueSize = 100;
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getQueueSize() {
+            return queueSize;
+        }
+
+        public void setQueueSize(int queueSize) {
+            this.queueSize = queueSize;
+        }
+    }
+}
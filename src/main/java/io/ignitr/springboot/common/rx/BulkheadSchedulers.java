@@ -0,0 +1,207 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.ignitr.springboot.common.error.CommonErrorCode;
+import io.ignitr.springboot.common.error.IgnitionRuntimeException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.plugins.RxJavaPlugins;
+import rx.schedulers.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Named {@link Scheduler}s that isolate the work done against each downstream dependency.
+ *
+ * <p>
+ * Each bulkhead runs on its own fixed number of threads with a bounded queue, so a slow dependency can only exhaust
+ * its own bulkhead instead of the shared {@link Schedulers#io()} pool.  Work that is scheduled while the bulkhead is
+ * full is rejected and the Observable fails with a 503 {@link IgnitionRuntimeException}.
+ * </p>
+ *
+ * <p>
+ * Delayed work, such as that of <code>delay()</code>, <code>timer()</code> or <code>delaySubscription()</code> on a
+ * bulkhead scheduler, is only submitted to the bulkhead once its delay has elapsed, on the timer thread of RxJava.  A
+ * rejection at that point cannot be reported to the Observable: it is passed to the RxJava error handler and the
+ * Observable does not continue.  Delays should be timed on another scheduler, as {@link RetryWithBackoff} and
+ * {@link HedgedRequest} do by default, with the work then moved onto the bulkhead by <code>subscribeOn()</code> or
+ * <code>observeOn()</code>.  Work scheduled without a delay is always covered.
+ * </p>
+ *
+ * <pre>
+ * inventoryClient.getStock(sku)
+ *         .subscribeOn(bulkheads.get("inventory"));
+ * </pre>
+ */
+@Component
+public class BulkheadSchedulers implements PublicMetrics {
+    private final Map<String, Bulkhead> bulkheads = new LinkedHashMap<>();
+
+    @Autowired
+    public BulkheadSchedulers(BulkheadProperties properties) {
+        for (Map.Entry<String, BulkheadProperties.Pool> entry : properties.getPools().entrySet()) {
+            bulkheads.put(entry.getKey(), new Bulkhead(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    /**
+     * Retrieves the scheduler of a bulkhead.
+     *
+     * @param name bulkhead name
+     * @return scheduler of the bulkhead
+     * @throws IllegalArgumentException if no bulkhead with the name has been configured
+     */
+    public Scheduler get(String name) {
+        Bulkhead bulkhead = bulkheads.get(name);
+        if (bulkhead == null) {
+            throw new IllegalArgumentException("No bulkhead named '" + name + "' has been configured");
+        }
+
+        return bulkhead.scheduler;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+
+        for (Bulkhead bulkhead : bulkheads.values()) {
+            String prefix = "bulkhead." + bulkhead.name;
+
+            metrics.add(new Metric<>(prefix + ".threads", bulkhead.executor.getMaximumPoolSize()));
+            metrics.add(new Metric<>(prefix + ".active", bulkhead.executor.getActiveCount()));
+            metrics.add(new Metric<>(prefix + ".queued", bulkhead.executor.getQueue().size()));
+            metrics.add(new Metric<>(prefix + ".completed", bulkhead.executor.getCompletedTaskCount()));
+            metrics.add(new Metric<>(prefix + ".rejected", bulkhead.rejected.get()));
+        }
+
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Bulkhead bulkhead : bulkheads.values()) {
+            bulkhead.executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Thread pool and scheduler of a single bulkhead.
+     */
+    private static class Bulkhead {
+        private final String name;
+        private final ThreadPoolExecutor executor;
+        private final Scheduler scheduler;
+        private final AtomicLong rejected = new AtomicLong();
+
+        Bulkhead(String name, BulkheadProperties.Pool pool) {
+            this.name = name;
+            this.executor = new ThreadPoolExecutor(pool.getThreads(), pool.getThreads(),
+                    0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(pool.getQueueSize()),
+                    new ThreadFactoryBuilder().setNameFormat("bulkhead-" + name + "-%d").setDaemon(true).build(),
+                    (r, e) -> {
+                        rejected.incrementAndGet();
+                        throw new RejectedExecutionException("Bulkhead '" + name + "' is full");
+                    });
+            this.scheduler = new BulkheadScheduler(this, Schedulers.from(executor));
+        }
+    }
+
+    /**
+     * Scheduler that translates rejected work into a 503 {@link IgnitionRuntimeException}.
+     *
+     * <p>
+     * The executor scheduler of RxJava does not apply the registered schedulers hook, so it is applied here to keep
+     * the request context propagation of {@link RequestContextSchedulersHook} working on bulkhead threads.
+     * </p>
+     */
+    private static class BulkheadScheduler extends Scheduler {
+        private final Bulkhead bulkhead;
+        private final Scheduler delegate;
+
+        BulkheadScheduler(Bulkhead bulkhead, Scheduler delegate) {
+            this.bulkhead = bulkhead;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Worker createWorker() {
+            Worker worker = delegate.createWorker();
+
+            return new Worker() {
+                @Override
+                public Subscription schedule(Action0 action) {
+                    try {
+                        return worker.schedule(RxJavaPlugins.getInstance().getSchedulersHook().onSchedule(action));
+                    } catch (RejectedExecutionException e) {
+                        throw rejected();
+                    }
+                }
+
+                @Override
+                public Subscription schedule(Action0 action, long delayTime, TimeUnit unit) {
+                    if (delayTime <= 0) {
+                        return schedule(action);
+                    }
+
+                    // Only the submission of the timer is covered here, see the class documentation of
+                    // BulkheadSchedulers for rejections once the delay has elapsed
+                    try {
+                        return worker.schedule(RxJavaPlugins.getInstance().getSchedulersHook().onSchedule(action),
+                                delayTime, unit);
+                    } catch (RejectedExecutionException e) {
+                        throw rejected();
+                    }
+                }
+
+                @Override
+                public void unsubscribe() {
+                    worker.unsubscribe();
+                }
+
+                @Override
+                public boolean isUnsubscribed() {
+                    return worker.isUnsubscribed();
+                }
+            };
+        }
+
+        private IgnitionRuntimeException rejected() {
+            // Not chained to the rejection so that the error handlers resolve this exception as the root cause
+            return new IgnitionRuntimeException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Bulkhead '" + bulkhead.name + "' is at capacity", CommonErrorCode.BULKHEAD_REJECTED);
+        }
+    }
+}
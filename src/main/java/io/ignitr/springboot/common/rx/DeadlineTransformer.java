@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import io.ignitr.springboot.common.deadline.Deadline;
+import io.ignitr.springboot.common.error.CommonErrorCode;
+import io.ignitr.springboot.common.error.IgnitionRuntimeException;
+import org.springframework.http.HttpStatus;
+import rx.Observable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transformer that applies the {@link Deadline} of the constructing thread's request as a timeout on an
+ * Observable.  The deadline bounds the whole Observable rather than the time between items.  When it expires the
+ * upstream Observable is unsubscribed and a 504 - Gateway Timeout {@link IgnitionRuntimeException} is emitted, so
+ * no further work is done on behalf of a client that has given up.
+ *
+ * <p>
+ * The transformer is applied with {@link Observable#compose(Observable.Transformer)}.  If the request has no
+ * deadline the source Observable is returned unchanged.
+ * </p>
+ *
+ * @param <T>
+ */
+public class DeadlineTransformer<T> implements Observable.Transformer<T, T> {
+    private final Deadline deadline;
+
+    public DeadlineTransformer() {
+        this(Deadline.current());
+    }
+
+    public DeadlineTransformer(Deadline deadline) {
+        this.deadline = deadline;
+    }
+
+    @Override
+    public Observable<T> call(Observable<T> source) {
+        if (deadline == null) {
+            return source;
+        }
+
+        return Observable.defer(() -> {
+            long remaining = deadline.remaining(TimeUnit.NANOSECONDS);
+
+            if (remaining <= 0) {
+                return Observable.error(deadlineExceeded());
+            }
+
+            // An absolute timer rather than timeout(), which restarts on every item and never fires for a busy stream
+            return source.takeUntil(Observable.timer(remaining, TimeUnit.NANOSECONDS)
+                    .flatMap(tick -> Observable.error(deadlineExceeded())));
+        });
+    }
+
+    private static IgnitionRuntimeException deadlineExceeded() {
+        return new IgnitionRuntimeException(HttpStatus.GATEWAY_TIMEOUT, "Request deadline exceeded",
+                CommonErrorCode.DEADLINE_EXCEEDED);
+    }
+}
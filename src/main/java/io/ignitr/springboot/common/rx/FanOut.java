@@ -0,0 +1,216 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs a set of named sub-calls in parallel with bounded concurrency and collects their results, whether they
+ * succeed or fail.
+ *
+ * <p>
+ * At most <code>maxConcurrency</code> sub-calls are subscribed to at the same time and each is given its own
+ * timeout, which bounds the whole sub-call from the moment it is subscribed to, however many items it emits.  Every
+ * sub-call is expected to emit a single value; the last value is used when it emits more than one and a sub-call that
+ * emits nothing is recorded as a failure.  The returned Observable never fails because of a sub-call; failures are
+ * collected into the {@link FanOutResult}, which can turn them into a single error response.
+ * </p>
+ *
+ * <pre>
+ * FanOut.&lt;Object&gt;builder()
+ *         .maxConcurrency(8)
+ *         .timeout(300, TimeUnit.MILLISECONDS)
+ *         .call("inventory", inventoryClient.getStock(sku))
+ *         .call("pricing", pricingClient.getPrice(sku))
+ *         .execute()
+ *         .flatMap(result -&gt; result.hasFailures()
+ *                 ? Observable.error(result.toException())
+ *                 : Observable.just(render(result.getSuccesses())));
+ * </pre>
+ *
+ * @param <T> value type of the sub-calls
+ */
+public final class FanOut<T> {
+    private final Map<String, Observable<? extends T>> calls;
+    private final int maxConcurrency;
+    private final long timeout;
+    private final Scheduler scheduler;
+
+    private FanOut(Builder<T> builder) {
+        this.calls = new LinkedHashMap<>(builder.calls);
+        this.maxConcurrency = builder.maxConcurrency;
+        this.timeout = builder.timeout;
+        this.scheduler = builder.scheduler;
+    }
+
+    /**
+     * Creates a builder for a {@link FanOut}.
+     *
+     * @param <T> value type of the sub-calls
+     * @return fan-out builder
+     */
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Runs the sub-calls.
+     *
+     * @return Observable emitting the result once every sub-call has finished
+     */
+    public Observable<FanOutResult<T>> execute() {
+        RequestContextStashOperator<FanOutResult<T>> stash = RequestContextStashOperator.ifPresent();
+
+        return Observable.from(calls.entrySet())
+                .flatMap(call -> {
+                    Observable<? extends T> observable = call.getValue();
+                    if (timeout > 0) {
+                        observable = observable.takeUntil(timer());
+                    }
+
+                    return observable.last()
+                            .map(value -> new Outcome<T>(call.getKey(), value, null))
+                            .onErrorReturn(e -> new Outcome<>(call.getKey(), null, e));
+                }, maxConcurrency)
+                .toMap(outcome -> outcome.name)
+                .map(outcomes -> {
+                    Map<String, T> successes = new LinkedHashMap<>();
+                    Map<String, Throwable> failures = new LinkedHashMap<>();
+
+                    // Report in the order the calls were added rather than the order they finished in
+                    for (String name : calls.keySet()) {
+                        Outcome<T> outcome = outcomes.get(name);
+                        if (outcome.error != null) {
+                            failures.put(name, outcome.error);
+                        } else {
+                            successes.put(name, outcome.value);
+                        }
+                    }
+
+                    return new FanOutResult<>(successes, failures);
+                })
+                .lift(stash);
+    }
+
+    /**
+     * Creates an Observable that fails with a {@link TimeoutException} once the timeout has passed after it was
+     * subscribed to.
+     */
+    private Observable<Object> timer() {
+        return Observable.timer(timeout, TimeUnit.NANOSECONDS, scheduler)
+                .flatMap(tick -> Observable.error(new TimeoutException()));
+    }
+
+    /**
+     * Result of a single sub-call.
+     */
+    private static class Outcome<T> {
+        private final String name;
+        private final T value;
+        private final Throwable error;
+
+        Outcome(String name, T value, Throwable error) {
+            this.name = name;
+            this.value = value;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Builder for a {@link FanOut}.
+     *
+     * @param <T> value type of the sub-calls
+     */
+    public static class Builder<T> {
+        private final Map<String, Observable<? extends T>> calls = new LinkedHashMap<>();
+        private int maxConcurrency = 8;
+        private long timeout;
+        private Scheduler scheduler = Schedulers.computation();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a sub-call.
+         *
+         * @param name       name of the sub-call, used as the field of its error
+         * @param observable Observable that makes the sub-call when subscribed to
+         * @return this builder
+         */
+        public Builder<T> call(String name, Observable<? extends T> observable) {
+            if (calls.containsKey(name)) {
+                throw new IllegalArgumentException("A call named '" + name + "' has already been added");
+            }
+
+            calls.put(name, observable);
+            return this;
+        }
+
+        /**
+         * @param maxConcurrency maximum number of sub-calls in flight at the same time
+         * @return this builder
+         */
+        public Builder<T> maxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        /**
+         * @param duration timeout of each sub-call, or <code>0</code> for no timeout
+         * @param unit     unit of the duration
+         * @return this builder
+         */
+        public Builder<T> timeout(long duration, TimeUnit unit) {
+            this.timeout = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * @param scheduler scheduler on which the timeouts are timed
+         * @return this builder
+         */
+        public Builder<T> scheduler(Scheduler scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * @return the fan-out
+         */
+        public FanOut<T> build() {
+            return new FanOut<>(this);
+        }
+
+        /**
+         * Builds the fan-out and runs its sub-calls.
+         *
+         * @return Observable emitting the result once every sub-call has finished
+         */
+        public Observable<FanOutResult<T>> execute() {
+            return build().execute();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import com.google.common.base.Throwables;
+import io.ignitr.springboot.common.error.CommonErrorCode;
+import io.ignitr.springboot.common.error.IgnitionException;
+import io.ignitr.springboot.common.error.IgnitionRuntimeException;
+import org.springframework.http.HttpStatus;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Successes and failures of the sub-calls run by a {@link FanOut}, keyed by sub-call name.
+ *
+ * @param <T> value type of the sub-calls
+ */
+public final class FanOutResult<T> {
+    private final Map<String, T> successes;
+    private final Map<String, Throwable> failures;
+
+    FanOutResult(Map<String, T> successes, Map<String, Throwable> failures) {
+        this.successes = Collections.unmodifiableMap(successes);
+        this.failures = Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * @return values of the sub-calls that succeeded
+     */
+    public Map<String, T> getSuccesses() {
+        return successes;
+    }
+
+    /**
+     * @return errors of the sub-calls that failed
+     */
+    public Map<String, Throwable> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return <code>true</code> if any sub-call failed; otherwise <code>false</code>
+     */
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    /**
+     * Creates a 502 exception with a field error for every failed sub-call, which {@link
+     * io.ignitr.springboot.common.error.ObservableErrorHandler} renders as a single error response.  The field of
+     * each error is the name of the sub-call.  Only the messages of {@link IgnitionException}s are included, so
+     * that unexpected errors do not divulge internal details.
+     *
+     * @return exception describing the failed sub-calls
+     */
+    public IgnitionRuntimeException toException() {
+        IgnitionRuntimeException exception = new IgnitionRuntimeException(HttpStatus.BAD_GATEWAY,
+                failures.size() + " of " + (failures.size() + successes.size()) + " calls failed",
+                CommonErrorCode.FAN_OUT_PARTIAL_FAILURE);
+
+        for (Map.Entry<String, Throwable> failure : failures.entrySet()) {
+            Throwable rootCause = Throwables.getRootCause(failure.getValue());
+
+            if (rootCause instanceof IgnitionException && ((IgnitionException) rootCause).getErrorCode() != null) {
+                exception.addFieldError(failure.getKey(), ((IgnitionException) rootCause).getErrorCode(),
+                        rootCause.getMessage());
+            } else if (rootCause instanceof IgnitionException) {
+                exception.addFieldError(failure.getKey(), CommonErrorCode.FAN_OUT_CALL_FAILED, rootCause.getMessage());
+            } else if (rootCause instanceof TimeoutException) {
+                exception.addFieldError(failure.getKey(), CommonErrorCode.FAN_OUT_CALL_TIMEOUT,
+                        "The call did not complete within the allotted time");
+            } else {
+                exception.addFieldError(failure.getKey(), CommonErrorCode.FAN_OUT_CALL_FAILED, "The call failed");
+            }
+        }
+
+        return exception;
+    }
+}
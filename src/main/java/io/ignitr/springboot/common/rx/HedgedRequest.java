@@ -0,0 +1,287 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Func0;
+import rx.schedulers.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sends a duplicate of a call when the original has not answered within a latency percentile of recent calls, and
+ * takes whichever answer arrives first.
+ *
+ * <p>
+ * The latencies of the most recent calls are kept in a lock-free ring buffer and the hedge delay is recalculated
+ * from them periodically.  No call is hedged until enough latencies have been recorded.  When a {@link RetryBudget}
+ * is configured every hedged call has to be granted by it, so that hedging backs off when the dependency is slow for
+ * every caller.  The call that loses the race is unsubscribed from.
+ * </p>
+ *
+ * <p>
+ * The latency of an original call that is cancelled because its hedge answered first is recorded as the time it had
+ * been running, so that the calls slow enough to be hedged keep counting towards the percentile.  A hedge only counts
+ * as a win when it completes successfully.
+ * </p>
+ *
+ * <pre>
+ * HedgedRequest hedge = HedgedRequest.builder("search")
+ *         .percentile(0.95)
+ *         .budget(searchBudget)
+ *         .build();
+ *
+ * hedge.execute(() -&gt; searchClient.search(query));
+ * </pre>
+ */
+public class HedgedRequest implements PublicMetrics {
+    private static final int RECALCULATE_INTERVAL = 64;
+
+    private final String name;
+    private final double percentile;
+    private final int minSamples;
+    private final long minDelay;
+    private final RetryBudget budget;
+    private final Scheduler scheduler;
+    private final AtomicLongArray latencies;
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final AtomicLong budgetDenied = new AtomicLong();
+    private volatile long delay = -1;
+
+    private HedgedRequest(Builder builder) {
+        this.name = builder.name;
+        this.percentile = builder.percentile;
+        this.minSamples = Math.min(builder.minSamples, builder.window);
+        this.minDelay = builder.minDelay;
+        this.budget = builder.budget;
+        this.scheduler = builder.scheduler;
+        this.latencies = new AtomicLongArray(builder.window);
+    }
+
+    /**
+     * Creates a builder for a {@link HedgedRequest}.
+     *
+     * @param name name used for the metrics of the operator
+     * @return operator builder
+     */
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    /**
+     * Executes a call, hedging it when it is slower than the learned threshold.
+     *
+     * @param call factory of the Observable that makes the call, which is invoked again for the hedged call
+     * @param <T>  item type
+     * @return Observable emitting the items of the call that answers first
+     */
+    public <T> Observable<T> execute(Func0<Observable<T>> call) {
+        return Observable.defer(() -> {
+            calls.incrementAndGet();
+            if (budget != null) {
+                budget.deposit();
+            }
+
+            Observable<T> primary = timed(call, true);
+
+            long hedgeDelay = delay;
+            if (hedgeDelay < 0) {
+                return primary;
+            }
+
+            Observable<T> hedge = Observable.timer(hedgeDelay, TimeUnit.NANOSECONDS, scheduler)
+                    .flatMap(tick -> {
+                        if (budget != null && !budget.tryWithdraw()) {
+                            budgetDenied.incrementAndGet();
+                            return Observable.<T>never();
+                        }
+
+                        hedges.incrementAndGet();
+                        return timed(call, false).doOnCompleted(hedgeWins::incrementAndGet);
+                    });
+
+            return Observable.amb(primary, hedge);
+        });
+    }
+
+    /**
+     * @return current hedge delay in milliseconds, or <code>-1</code> while not enough latencies have been recorded
+     */
+    public long getDelay() {
+        long current = delay;
+        return current < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(current);
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+
+        String prefix = "hedge." + name;
+        metrics.add(new Metric<>(prefix + ".calls", calls.get()));
+        metrics.add(new Metric<>(prefix + ".hedges", hedges.get()));
+        metrics.add(new Metric<>(prefix + ".hedgewins", hedgeWins.get()));
+        metrics.add(new Metric<>(prefix + ".budgetdenied", budgetDenied.get()));
+        metrics.add(new Metric<>(prefix + ".delay", getDelay()));
+
+        return metrics;
+    }
+
+    /**
+     * Records the latency of the call when it completes, and when it is unsubscribed from before it terminates if
+     * <code>recordCancelled</code> is set.
+     */
+    private <T> Observable<T> timed(Func0<Observable<T>> call, boolean recordCancelled) {
+        return Observable.defer(() -> {
+            long start = System.nanoTime();
+            AtomicBoolean terminated = new AtomicBoolean();
+
+            return call.call()
+                    .doOnCompleted(() -> record(System.nanoTime() - start))
+                    .doOnTerminate(() -> terminated.set(true))
+                    .doOnUnsubscribe(() -> {
+                        if (recordCancelled && !terminated.get()) {
+                            record(System.nanoTime() - start);
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Records the latency of a call and recalculates the hedge delay every
+     * {@value #RECALCULATE_INTERVAL} calls.
+     */
+    private void record(long latency) {
+        long n = recorded.getAndIncrement();
+        latencies.set((int) (n % latencies.length()), latency);
+
+        if (n + 1 >= minSamples && (n + 1) % RECALCULATE_INTERVAL == 0) {
+            int size = (int) Math.min(n + 1, latencies.length());
+            long[] samples = new long[size];
+            for (int i = 0; i < size; i++) {
+                samples[i] = latencies.get(i);
+            }
+
+            Arrays.sort(samples);
+            int index = (int) Math.max(0, Math.min(size - 1, Math.ceil(percentile * size) - 1));
+            delay = Math.max(minDelay, samples[index]);
+        }
+    }
+
+    /**
+     * Builder for a {@link HedgedRequest}.
+     */
+    public static class Builder {
+        private final String name;
+        private double percentile = 0.95;
+        private int window = 1024;
+        private int minSamples = 128;
+        private long minDelay = TimeUnit.MILLISECONDS.toNanos(1);
+        private RetryBudget budget;
+        private Scheduler scheduler = Schedulers.computation();
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @param percentile latency percentile of recent calls after which a call is hedged, greater than 0 and at most
+         *                   1
+         * @return this builder
+         * @throws IllegalArgumentException if the percentile is out of range
+         */
+        public Builder percentile(double percentile) {
+            if (!(percentile > 0 && percentile <= 1)) {
+                throw new IllegalArgumentException("The percentile must be greater than 0 and at most 1 but was "
+                        + percentile);
+            }
+
+            this.percentile = percentile;
+            return this;
+        }
+
+        /**
+         * @param window number of recent call latencies from which the percentile is calculated, greater than 0
+         * @return this builder
+         * @throws IllegalArgumentException if the window is not greater than 0
+         */
+        public Builder window(int window) {
+            if (window <= 0) {
+                throw new IllegalArgumentException("The window must be greater than 0 but was " + window);
+            }
+
+            this.window = window;
+            return this;
+        }
+
+        /**
+         * @param minSamples number of latencies that have to be recorded before calls are hedged
+         * @return this builder
+         */
+        public Builder minSamples(int minSamples) {
+            this.minSamples = minSamples;
+            return this;
+        }
+
+        /**
+         * @param duration minimum delay before a call is hedged
+         * @param unit     unit of the duration
+         * @return this builder
+         */
+        public Builder minDelay(long duration, TimeUnit unit) {
+            this.minDelay = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * @param budget budget that has to grant every hedged call
+         * @return this builder
+         */
+        public Builder budget(RetryBudget budget) {
+            this.budget = budget;
+            return this;
+        }
+
+        /**
+         * @param scheduler scheduler on which the hedge delay is timed
+         * @return this builder
+         */
+        public Builder scheduler(Scheduler scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * @return the operator
+         */
+        public HedgedRequest build() {
+            return new HedgedRequest(this);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.subscriptions.Subscriptions;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Operator that records the subscriptions, time to first item, duration, items, errors by error code and
+ * unsubscriptions of a named pipeline in its {@link StreamMetrics}.
+ *
+ * <pre>
+ * productClient.getProducts(ids)
+ *         .lift(new InstrumentedOperator&lt;&gt;("products"));
+ * </pre>
+ *
+ * <p>
+ * A growing number of active subscriptions for a pipeline indicates subscriptions that are never terminated or
+ * unsubscribed from.
+ * </p>
+ *
+ * @param <T>
+ */
+public class InstrumentedOperator<T> implements Observable.Operator<T, T> {
+    private final StreamMetrics metrics;
+
+    /**
+     * Initializes this instance of {@link InstrumentedOperator}.
+     *
+     * @param name name of the pipeline
+     */
+    public InstrumentedOperator(String name) {
+        this.metrics = StreamMetrics.forName(name);
+    }
+
+    @Override
+    public Subscriber<? super T> call(Subscriber<? super T> subscriber) {
+        InstrumentedSubscriber<T> instrumented = new InstrumentedSubscriber<>(subscriber, metrics);
+        subscriber.add(Subscriptions.create(instrumented::cancelled));
+        return instrumented;
+    }
+
+    /**
+     * Subscriber that records the notifications it passes on.
+     *
+     * @param <T>
+     */
+    private static class InstrumentedSubscriber<T> extends Subscriber<T> {
+        private final Subscriber<? super T> actual;
+        private final StreamMetrics metrics;
+        private final long subscribedAt = System.nanoTime();
+        private final AtomicBoolean done = new AtomicBoolean();
+        private boolean first = true;
+
+        InstrumentedSubscriber(Subscriber<? super T> actual, StreamMetrics metrics) {
+            super(actual);
+            this.actual = actual;
+            this.metrics = metrics;
+            metrics.subscribed();
+        }
+
+        @Override
+        public void onNext(T t) {
+            metrics.item(System.nanoTime() - subscribedAt, first);
+            first = false;
+            actual.onNext(t);
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            if (done.compareAndSet(false, true)) {
+                metrics.failed(System.nanoTime() - subscribedAt, e);
+            }
+            actual.onError(e);
+        }
+
+        @Override
+        public void onCompleted() {
+            if (done.compareAndSet(false, true)) {
+                metrics.completed(System.nanoTime() - subscribedAt);
+            }
+            actual.onCompleted();
+        }
+
+        void cancelled() {
+            // Only counted when the subscriber goes away before the stream has terminated
+            if (done.compareAndSet(false, true)) {
+                metrics.unsubscribed();
+            }
+        }
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.ignitr.springboot.common.error.IgnitionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Func1;
+import rx.schedulers.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded cache of the items emitted by Observable-returning service calls.
+ *
+ * <p>
+ * Entries are served from the cache for the configured time to live.  Once an entry is older than the refresh-ahead
+ * time it is still served but reloaded in the background, and for the stale-while-revalidate period after the time
+ * to live it is served stale while it is reloaded.  Empty results and 4xx {@link IgnitionException}s are cached for
+ * the negative time to live.  Concurrent loads of the same key are coalesced with a {@link SingleFlight}, and
+ * background reloads are subscribed to on the refresh scheduler, {@link Schedulers#io()} by default, so that they
+ * never hold up the lookup that triggered them.  At most one background reload per key is scheduled at a time, so
+ * lookups that find an entry due for refresh while it is being reloaded do not take up further threads.
+ * </p>
+ *
+ * <p>
+ * Lookups do not take locks and the number of entries is bounded by the maximum size, with the least recently used
+ * entries evicted first.  Declaring an instance as a bean publishes its hit, miss, stale and eviction counts as
+ * metrics.
+ * </p>
+ *
+ * <pre>
+ * ObservableCache&lt;String, Country&gt; countries = ObservableCache.&lt;String, Country&gt;builder("countries")
+ *         .maximumSize(500)
+ *         .timeToLive(10, TimeUnit.MINUTES)
+ *         .refreshAfter(8, TimeUnit.MINUTES)
+ *         .staleWhileRevalidate(1, TimeUnit.MINUTES)
+ *         .build(code -&gt; countryClient.getCountry(code));
+ * </pre>
+ *
+ * @param <K> key type
+ * @param <V> item type
+ */
+public class ObservableCache<K, V> implements PublicMetrics {
+    private static final Logger LOG = LoggerFactory.getLogger(ObservableCache.class);
+
+    private final String name;
+    private final Func1<K, Observable<V>> loader;
+    private final long timeToLive;
+    private final long refreshAfter;
+    private final long staleWhileRevalidate;
+    private final long negativeTimeToLive;
+    private final Scheduler refreshScheduler;
+    private final Cache<K, Entry<V>> cache;
+    private final SingleFlight<K, Entry<V>> loads;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong stale = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final Set<K> refreshing = ConcurrentHashMap.newKeySet();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private ObservableCache(Builder<K, V> builder, Func1<K, Observable<V>> loader) {
+        this.name = builder.name;
+        this.loader = loader;
+        this.timeToLive = builder.timeToLive;
+        this.refreshAfter = builder.refreshAfter > 0 ? builder.refreshAfter : builder.timeToLive;
+        this.staleWhileRevalidate = builder.staleWhileRevalidate;
+        this.negativeTimeToLive = builder.negativeTimeToLive;
+        this.refreshScheduler = builder.refreshScheduler;
+        this.loads = new SingleFlight<>("cache." + builder.name);
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(builder.maximumSize)
+                .expireAfterWrite(Math.max(timeToLive + staleWhileRevalidate, negativeTimeToLive), TimeUnit.NANOSECONDS)
+                .<K, Entry<V>>removalListener(notification -> {
+                    if (notification.wasEvicted()) {
+                        evictions.incrementAndGet();
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Creates a builder for an {@link ObservableCache}.
+     *
+     * @param name name used for the metrics of the cache
+     * @param <K>  key type
+     * @param <V>  item type
+     * @return cache builder
+     */
+    public static <K, V> Builder<K, V> builder(String name) {
+        return new Builder<>(name);
+    }
+
+    /**
+     * Returns the items for the key from the cache, loading them when they are not cached.
+     *
+     * @param key key to look up
+     * @return Observable emitting the cached or loaded items
+     */
+    public Observable<V> get(K key) {
+        return Observable.defer(() -> {
+            Entry<V> entry = cache.getIfPresent(key);
+            long now = System.nanoTime();
+
+            if (entry == null || entry.isExpired(now)) {
+                misses.incrementAndGet();
+                return load(key, false).flatMap(Entry::toObservable);
+            }
+
+            long age = now - entry.loadedAt;
+            if (age >= timeToLive) {
+                stale.incrementAndGet();
+                refresh(key);
+            } else {
+                hits.incrementAndGet();
+                if (age >= refreshAfter) {
+                    refresh(key);
+                }
+            }
+
+            return entry.toObservable();
+        });
+    }
+
+    /**
+     * Removes the entry for the key from the cache.
+     *
+     * @param key key to remove
+     */
+    public void invalidate(K key) {
+        cache.invalidate(key);
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+
+        String prefix = "cache." + name;
+        metrics.add(new Metric<>(prefix + ".size", cache.size()));
+        metrics.add(new Metric<>(prefix + ".hits", hits.get()));
+        metrics.add(new Metric<>(prefix + ".misses", misses.get()));
+        metrics.add(new Metric<>(prefix + ".stale", stale.get()));
+        metrics.add(new Metric<>(prefix + ".refreshes", refreshes.get()));
+        metrics.add(new Metric<>(prefix + ".evictions", evictions.get()));
+
+        return metrics;
+    }
+
+    /**
+     * Loads the items for the key and caches the result.  Errors that are not cached are passed on without touching
+     * the existing entry.  Refreshes are only counted when they start a load rather than join one in flight.
+     */
+    private Observable<Entry<V>> load(K key, boolean refresh) {
+        return loads.execute(key, () -> {
+            if (refresh) {
+                refreshes.incrementAndGet();
+            }
+
+            return Observable.defer(() -> loader.call(key))
+                    .toList()
+                    .map(items -> new Entry<>(items, null, items.isEmpty() ? negativeTimeToLive : timeToLive + staleWhileRevalidate))
+                    .onErrorResumeNext(e -> {
+                        Throwable rootCause = Throwables.getRootCause(e);
+
+                        if (negativeTimeToLive > 0 && rootCause instanceof IgnitionException
+                                && ((IgnitionException) rootCause).getHttpStatus().is4xxClientError()) {
+                            return Observable.just(new Entry<V>(null, e, negativeTimeToLive));
+                        }
+
+                        return Observable.error(e);
+                    })
+                    .doOnNext(entry -> {
+                        if (entry.lifetime > 0) {
+                            cache.put(key, entry);
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Reloads the entry for the key in the background, unless a background reload of the key is already running.
+     */
+    private void refresh(K key) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+
+        load(key, true)
+                .subscribeOn(refreshScheduler)
+                .doOnUnsubscribe(() -> refreshing.remove(key))
+                .subscribe(entry -> {
+                }, e -> LOG.warn("Unable to refresh the entry for key '{}' in cache '{}'", key, name, e));
+    }
+
+    /**
+     * Cached result of a load.
+     *
+     * @param <V> item type
+     */
+    private static class Entry<V> {
+        private final List<V> items;
+        private final Throwable error;
+        private final long loadedAt = System.nanoTime();
+        private final long lifetime;
+
+        Entry(List<V> items, Throwable error, long lifetime) {
+            this.items = items != null ? Collections.unmodifiableList(items) : null;
+            this.error = error;
+            this.lifetime = lifetime;
+        }
+
+        boolean isExpired(long now) {
+            return now - loadedAt >= lifetime;
+        }
+
+        Observable<V> toObservable() {
+            return error != null ? Observable.error(error) : Observable.from(items);
+        }
+    }
+
+    /**
+     * Builder for an {@link ObservableCache}.
+     *
+     * @param <K> key type
+     * @param <V> item type
+     */
+    public static class Builder<K, V> {
+        private final String name;
+        private long maximumSize = 1000;
+        private long timeToLive = TimeUnit.MINUTES.toNanos(5);
+        private long refreshAfter;
+        private long staleWhileRevalidate;
+        private long negativeTimeToLive = TimeUnit.SECONDS.toNanos(10);
+        private Scheduler refreshScheduler = Schedulers.io();
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @param maximumSize maximum number of keys held by the cache
+         * @return this builder
+         */
+        public Builder<K, V> maximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * @param duration time for which a loaded entry is served as fresh
+         * @param unit     unit of the duration
+         * @return this builder
+         */
+        public Builder<K, V> timeToLive(long duration, TimeUnit unit) {
+            this.timeToLive = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * @param duration age after which a fresh entry is reloaded in the background
+         * @param unit     unit of the duration
+         * @return this builder
+         */
+        public Builder<K, V> refreshAfter(long duration, TimeUnit unit) {
+            this.refreshAfter = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * @param duration time after the time to live for which an entry is served stale while it is reloaded
+         * @param unit     unit of the duration
+         * @return this builder
+         */
+        public Builder<K, V> staleWhileRevalidate(long duration, TimeUnit unit) {
+            this.staleWhileRevalidate = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * @param duration time for which empty results and client errors are cached, or <code>0</code> to not cache
+         *                 them
+         * @param unit     unit of the duration
+         * @return this builder
+         */
+        public Builder<K, V> negativeTimeToLive(long duration, TimeUnit unit) {
+            this.negativeTimeToLive = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * @param refreshScheduler scheduler on which entries are reloaded in the background
+         * @return this builder
+         */
+        public Builder<K, V> refreshScheduler(Scheduler refreshScheduler) {
+            this.refreshScheduler = refreshScheduler;
+            return this;
+        }
+
+        /**
+         * @param loader function that loads the items for a key
+         * @return the cache
+         */
+        public ObservableCache<K, V> build(Func1<K, Observable<V>> loader) {
+            return new ObservableCache<>(this, loader);
+        }
+    }
+}
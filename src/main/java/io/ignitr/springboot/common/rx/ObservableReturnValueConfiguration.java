@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import io.ignitr.springboot.common.error.ObservableErrorHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.sleuth.Tracer;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+import java.util.List;
+
+/**
+ * Registers the {@link ObservableReturnValueHandler} with Spring MVC.  The handler is registered unless the
+ * <code>ignition.rx.return-value-handler.enabled</code> property is set to <code>false</code>.
+ *
+ * <p>
+ * Spring MVC always selects an asynchronous return value handler for asynchronous return values, so the handler
+ * takes precedence over the <code>@ResponseBody</code> handling of <code>@RestController</code> methods.
+ * </p>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "ignition.rx.return-value-handler", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ObservableReturnValueConfiguration extends WebMvcConfigurerAdapter {
+
+    @Autowired
+    private ObservableErrorHandler errorHandler;
+
+    @Autowired(required = false)
+    private Tracer tracer;
+
+    @Autowired
+    private RequestContextDeclarations declarations;
+
+    @Value("${ignition.rx.async-timeout:0}")
+    private long timeout;
+
+    @Override
+    public void addReturnValueHandlers(List<HandlerMethodReturnValueHandler> returnValueHandlers) {
+        returnValueHandlers.add(new ObservableReturnValueHandler(errorHandler, tracer, declarations, timeout));
+    }
+}
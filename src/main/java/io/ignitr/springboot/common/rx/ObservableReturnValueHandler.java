@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import io.ignitr.springboot.common.deadline.Deadline;
+import io.ignitr.springboot.common.error.CommonErrorCode;
+import io.ignitr.springboot.common.error.IgnitionRuntimeException;
+import io.ignitr.springboot.common.error.ObservableErrorHandler;
+import org.springframework.cloud.sleuth.Tracer;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.method.support.AsyncHandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import rx.Observable;
+import rx.Single;
+import rx.Subscription;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Return value handler that allows controller methods to return an {@link Observable} or a {@link Single}.
+ *
+ * <p>
+ * The returned value is subscribed to and the servlet thread is released while it is running.  An Observable is
+ * rendered as a list of all of its items and a Single as its value.  The result and any error are handled within the
+ * request attributes, logging MDC and trace span of the request, captured as a {@link PropagatedContext}, and errors
+ * are rendered by the {@link ObservableErrorHandler}.
+ * </p>
+ *
+ * <p>
+ * The request times out after the configured timeout, or when the request {@link Deadline} expires if that happens
+ * first, in which case the Observable is unsubscribed from.  A 503 <code>REQUEST_TIMEOUT</code> error is returned
+ * when the configured timeout expires and a 504 <code>DEADLINE_EXCEEDED</code> error when the deadline does.
+ * </p>
+ */
+public class ObservableReturnValueHandler implements AsyncHandlerMethodReturnValueHandler {
+    private final ObservableErrorHandler errorHandler;
+    private final Tracer tracer;
+    private final RequestContextDeclarations declarations;
+    private final long timeout;
+
+    /**
+     * Initializes this instance of {@link ObservableReturnValueHandler}.
+     *
+     * @param errorHandler handler that renders errors raised by the returned Observables
+     * @param tracer       tracer used to propagate the current span, or <code>null</code> if tracing is not available
+     * @param declarations request headers and attributes to propagate
+     * @param timeout      timeout in milliseconds, or <code>0</code> to use the default async timeout of the container
+     */
+    public ObservableReturnValueHandler(ObservableErrorHandler errorHandler, Tracer tracer,
+                                        RequestContextDeclarations declarations, long timeout) {
+        this.errorHandler = errorHandler;
+        this.tracer = tracer;
+        this.declarations = declarations;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public boolean supportsReturnType(MethodParameter returnType) {
+        Class<?> type = returnType.getParameterType();
+        return Observable.class.isAssignableFrom(type) || Single.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public boolean isAsyncReturnValue(Object returnValue, MethodParameter returnType) {
+        return returnValue instanceof Observable || returnValue instanceof Single;
+    }
+
+    @Override
+    public void handleReturnValue(Object returnValue, MethodParameter returnType, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest) throws Exception {
+        if (returnValue == null) {
+            mavContainer.setRequestHandled(true);
+            return;
+        }
+
+        Observable<?> observable;
+        if (returnValue instanceof Single) {
+            observable = ((Single<?>) returnValue).toObservable();
+        } else {
+            observable = ((Observable<?>) returnValue).toList();
+        }
+
+        HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
+        PropagatedContext context = PropagatedContext.capture(tracer, declarations);
+
+        Deadline deadline = Deadline.current();
+        long remaining = deadline != null ? Math.max(1, deadline.remaining(TimeUnit.MILLISECONDS)) : 0;
+        boolean deadlineBound = deadline != null && (timeout <= 0 || remaining < timeout);
+
+        DeferredResult<Object> deferredResult = new DeferredResult<>(deadlineBound ? remaining : getTimeout());
+
+        Subscription subscription = observable.subscribe(
+                value -> runWithin(context, () -> deferredResult.setResult(value)),
+                e -> runWithin(context, () -> deferredResult.setErrorResult(errorHandler.handleError(request, e))));
+
+        deferredResult.onTimeout(() -> {
+            subscription.unsubscribe();
+            deferredResult.setErrorResult(errorHandler.handleError(request, timeoutError(deadlineBound)));
+        });
+        deferredResult.onCompletion(subscription::unsubscribe);
+
+        WebAsyncUtils.getAsyncManager(webRequest).startDeferredResultProcessing(deferredResult, mavContainer);
+    }
+
+    /**
+     * @return configured timeout in milliseconds, or <code>null</code> to use the container default
+     */
+    private Long getTimeout() {
+        return timeout > 0 ? timeout : null;
+    }
+
+    private static IgnitionRuntimeException timeoutError(boolean deadlineBound) {
+        if (deadlineBound) {
+            return new IgnitionRuntimeException(HttpStatus.GATEWAY_TIMEOUT, "Request deadline exceeded",
+                    CommonErrorCode.DEADLINE_EXCEEDED);
+        }
+
+        return new IgnitionRuntimeException(HttpStatus.SERVICE_UNAVAILABLE,
+                "The request did not complete within the allotted time", CommonErrorCode.REQUEST_TIMEOUT);
+    }
+
+    private static void runWithin(PropagatedContext context, Runnable task) {
+        if (context != null) {
+            context.runWithin(task);
+        } else {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.ignitr.springboot.common.error.IgnitionError;
+import io.ignitr.springboot.common.error.ObservableErrorHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.schedulers.Schedulers;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streams the items of an {@link Observable} to the client as they are emitted using Servlet 3.1 non-blocking
+ * output.
+ *
+ * <p>
+ * Items are requested from the Observable one at a time and only when the response output stream is ready to
+ * accept more data, so a slow client throttles the production of items instead of the whole result being buffered
+ * in memory.  Errors raised before the response has been committed are rendered as an {@link IgnitionError} by the
+ * {@link ObservableErrorHandler}.
+ * </p>
+ *
+ * <p>
+ * The response is not flushed, and therefore not committed, until the first item has been written, so that an
+ * Observable that fails straight away still produces a proper error response.  Clients that need the response
+ * headers early, such as SSE clients, can have them flushed once the
+ * <code>ignition.rx.stream-initial-flush-delay</code> property, in milliseconds, has passed without an item.
+ * </p>
+ */
+@Component
+public class ObservableStreamer {
+    private static final Logger LOG = LoggerFactory.getLogger(ObservableStreamer.class);
+    private static final byte[] SSE_ERROR_EVENT = "event: error\n".getBytes(StandardCharsets.UTF_8);
+
+    private final ObservableErrorHandler errorHandler;
+    private final ObjectMapper objectMapper;
+
+    @Value("${ignition.rx.stream-timeout:0}")
+    private long timeout;
+
+    @Value("${ignition.rx.stream-initial-flush-delay:0}")
+    private long initialFlushDelay;
+
+    @Autowired
+    public ObservableStreamer(ObservableErrorHandler errorHandler, ObjectMapper objectMapper) {
+        this.errorHandler = errorHandler;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Starts asynchronous processing of the request and streams the items of the Observable to the response.  The
+     * calling controller method should return without writing to the response.
+     *
+     * @param request    http servlet request
+     * @param response   http servlet response
+     * @param observable items to stream
+     * @param format     format in which to stream the items
+     * @param <T>        item type
+     * @throws IOException if the response output stream could not be obtained
+     */
+    public <T> void stream(HttpServletRequest request, HttpServletResponse response, Observable<T> observable,
+                           StreamFormat format) throws IOException {
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(timeout);
+
+        StreamingSubscriber<T> subscriber = new StreamingSubscriber<>(request, response, asyncContext, format);
+        asyncContext.addListener(subscriber);
+
+        observable.subscribe(subscriber);
+        subscriber.out.setWriteListener(subscriber);
+
+        if (initialFlushDelay > 0) {
+            Scheduler.Worker worker = Schedulers.computation().createWorker();
+            subscriber.add(worker);
+            worker.schedule(subscriber::flushHeaders, initialFlushDelay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Subscriber that writes items to the response whenever the output stream is ready.
+     *
+     * <p>
+     * All writes to the response, including replacing it with an error response, happen in {@link #drain()}, which is
+     * entered from the Observable's notifications, the container's write callbacks and the initial flush timer but
+     * only ever runs on one thread at a time.
+     * </p>
+     *
+     * @param <T>
+     */
+    private class StreamingSubscriber<T> extends Subscriber<T> implements WriteListener, AsyncListener {
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        private final AsyncContext asyncContext;
+        private final StreamFormat format;
+        private final ServletOutputStream out;
+        private final Queue<byte[]> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger wip = new AtomicInteger();
+        private boolean first = true;
+        private boolean errorHandled;
+        private volatile boolean requested;
+        private volatile boolean itemReceived;
+        private volatile boolean flushRequested;
+        private volatile Throwable error;
+        private volatile boolean done;
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        StreamingSubscriber(HttpServletRequest request, HttpServletResponse response, AsyncContext asyncContext,
+                            StreamFormat format) throws IOException {
+            this.request = request;
+            this.response = response;
+            this.asyncContext = asyncContext;
+            this.format = format;
+            this.out = response.getOutputStream();
+
+            if (format.getPrefix().length > 0) {
+                pending.add(format.getPrefix());
+            }
+        }
+
+        @Override
+        public void onStart() {
+            // Nothing is requested until the output stream is ready
+            request(0);
+        }
+
+        @Override
+        public void onNext(T t) {
+            try {
+                pending.add(format.frame(objectMapper.writeValueAsBytes(t), first));
+                first = false;
+                itemReceived = true;
+            } catch (IOException e) {
+                unsubscribe();
+                onError(e);
+                return;
+            }
+
+            requested = false;
+            drain();
+        }
+
+        @Override
+        public void onCompleted() {
+            if (format.getSuffix().length > 0) {
+                pending.add(format.getSuffix());
+            }
+
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            // Rendered by the drain loop so that it does not race with writes on the container's threads
+            error = e;
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void onWritePossible() throws IOException {
+            drain();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) throws IOException {
+            // The client has gone away
+            unsubscribe();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) throws IOException {
+            unsubscribe();
+            complete();
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) throws IOException {
+            completed.set(true);
+            unsubscribe();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) throws IOException {
+            // Noop
+        }
+
+        /**
+         * Requests that the response headers and anything written so far are sent to the client.
+         */
+        private void flushHeaders() {
+            flushRequested = true;
+            drain();
+        }
+
+        private void handleError(Throwable e) {
+            if (!response.isCommitted()) {
+                // Nothing has reached the client yet so the stream can be replaced with an error response
+                ResponseEntity<IgnitionError> errorResponse = errorHandler.handleError(request, e);
+
+                pending.clear();
+                response.resetBuffer();
+                response.setStatus(errorResponse.getStatusCode().value());
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                enqueueError(errorResponse.getBody(), false);
+            } else if (format == StreamFormat.SSE) {
+                enqueueError(errorHandler.handleError(request, e).getBody(), true);
+            } else {
+                LOG.error("An error occurred after the response was committed. Closing the stream", e);
+            }
+        }
+
+        private void enqueueError(IgnitionError error, boolean event) {
+            try {
+                byte[] body = objectMapper.writeValueAsBytes(error);
+
+                if (event) {
+                    pending.add(SSE_ERROR_EVENT);
+                    pending.add(format.frame(body, true));
+                } else {
+                    pending.add(body);
+                }
+            } catch (IOException e) {
+                LOG.error("Unable to serialize the error response", e);
+            }
+        }
+
+        /**
+         * Writes pending data while the output stream is ready, requesting the next item from the Observable once
+         * everything has been written.
+         */
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+
+            int missed = 1;
+            do {
+                try {
+                    drainLoop();
+                } catch (IOException e) {
+                    LOG.debug("Unable to write to the response stream", e);
+                    unsubscribe();
+                    complete();
+                }
+
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drainLoop() throws IOException {
+            Throwable e = error;
+            if (e != null && !errorHandled) {
+                errorHandled = true;
+                handleError(e);
+            }
+
+            while (!completed.get() && out.isReady()) {
+                byte[] data = pending.poll();
+
+                if (data != null) {
+                    out.write(data);
+                    continue;
+                }
+
+                if (done) {
+                    complete();
+                    return;
+                }
+
+                if (flushRequested || (!requested && itemReceived)) {
+                    // Push what has been written so far to the client before waiting on the Observable.  Nothing
+                    // is flushed before the first item so that an early error can still replace the response
+                    flushRequested = false;
+                    out.flush();
+                    if (!out.isReady()) {
+                        return;
+                    }
+                }
+
+                if (!requested) {
+                    requested = true;
+                    request(1);
+                }
+
+                return;
+            }
+        }
+
+        private void complete() {
+            // The timeout listener and the drain loop can both complete the stream
+            if (completed.compareAndSet(false, true)) {
+                asyncContext.complete();
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import org.slf4j.MDC;
+import org.springframework.cloud.sleuth.Span;
+import org.springframework.cloud.sleuth.Tracer;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Map;
+
+/**
+ * Request attributes, logging MDC and trace span captured on one thread so that work handed off to another thread
+ * runs within the same context.  The request attributes are captured as a {@link RequestContextSnapshot}, unless
+ * {@link RequestContextDeclarations#isLiveAttributes()}.
+ *
+ * <p>
+ * Used by the scheduler hooks and executors of this library that propagate the request context.
+ * </p>
+ */
+public final class PropagatedContext {
+    private final Tracer tracer;
+    private final RequestAttributes attributes;
+    private final Map<String, String> mdc;
+    private final Span span;
+
+    private PropagatedContext(Tracer tracer, RequestAttributes attributes, Map<String, String> mdc, Span span) {
+        this.tracer = tracer;
+        this.attributes = attributes;
+        this.mdc = mdc;
+        this.span = span;
+    }
+
+    /**
+     * Captures the context of the current thread, copying the request headers and attributes of the
+     * {@link RequestContextDeclarations#DEFAULT} declarations.
+     *
+     * @param tracer tracer used to capture the current span, or <code>null</code> if tracing is not available
+     * @return captured context or <code>null</code> if the current thread has no context to propagate
+     */
+    public static PropagatedContext capture(Tracer tracer) {
+        return capture(tracer, RequestContextDeclarations.DEFAULT);
+    }
+
+    /**
+     * Captures the context of the current thread.
+     *
+     * @param tracer       tracer used to capture the current span, or <code>null</code> if tracing is not available
+     * @param declarations request headers and attributes to copy
+     * @return captured context or <code>null</code> if the current thread has no context to propagate
+     */
+    public static PropagatedContext capture(Tracer tracer, RequestContextDeclarations declarations) {
+        RequestAttributes attributes = declarations.captureIfPresent();
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        Span span = tracer != null ? tracer.getCurrentSpan() : null;
+
+        if (attributes == null && mdc == null && span == null) {
+            return null;
+        }
+
+        return new PropagatedContext(tracer, attributes, mdc, span);
+    }
+
+    /**
+     * Runs the task within the captured context on the current thread.  The previous context of the thread is
+     * restored once the task has finished.
+     *
+     * @param task task to run
+     */
+    public void runWithin(Runnable task) {
+        RequestAttributes previousAttributes = RequestContextHolder.getRequestAttributes();
+        Map<String, String> previousMdc = MDC.getCopyOfContextMap();
+        Span previousSpan = span != null ? tracer.getCurrentSpan() : null;
+
+        setRequestAttributes(attributes);
+        setMdc(mdc);
+        if (span != null) {
+            tracer.continueSpan(span);
+        }
+
+        try {
+            task.run();
+        } finally {
+            if (span != null) {
+                tracer.detach(tracer.getCurrentSpan());
+                if (previousSpan != null) {
+                    tracer.continueSpan(previousSpan);
+                }
+            }
+            setMdc(previousMdc);
+            setRequestAttributes(previousAttributes);
+        }
+    }
+
+    private static void setRequestAttributes(RequestAttributes value) {
+        if (value != null) {
+            RequestContextHolder.setRequestAttributes(value);
+        } else {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    private static void setMdc(Map<String, String> value) {
+        if (value != null) {
+            MDC.setContextMap(value);
+        } else {
+            MDC.clear();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import io.ignitr.springboot.common.deadline.Deadline;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Names of the request headers and attributes that are copied into a {@link RequestContextSnapshot}, configured with
+ * the <code>ignition.context.headers</code> and <code>ignition.context.attributes</code> properties.  The request
+ * {@link Deadline} is always copied.
+ *
+ * <p>
+ * The components of this library that propagate the request context are given this bean.  Code that captures
+ * snapshots outside of them, such as a {@link RequestContextStashOperator} created by hand, can pass it as well;
+ * otherwise {@link #DEFAULT} applies, which copies no headers and only the request deadline.
+ * </p>
+ *
+ * <p>
+ * Setting <code>ignition.context.live-attributes</code> to <code>true</code> propagates the live request attributes
+ * instead of a snapshot, for code that needs the {@link ServletRequestAttributes} or request scoped beans created on
+ * other threads to be stored on the request.  The live request must then not be used after the response completes.
+ * </p>
+ */
+@Component
+public class RequestContextDeclarations {
+    public static final RequestContextDeclarations DEFAULT =
+            new RequestContextDeclarations(Collections.emptyList(), Collections.emptyList());
+
+    private final Set<String> headers;
+    private final Set<String> attributes;
+    private final boolean liveAttributes;
+
+    @Autowired
+    public RequestContextDeclarations(@Value("${ignition.context.headers:}") String[] headers,
+                                      @Value("${ignition.context.attributes:}") String[] attributes,
+                                      @Value("${ignition.context.live-attributes:false}") boolean liveAttributes) {
+        this(Arrays.asList(headers), Arrays.asList(attributes), liveAttributes);
+    }
+
+    /**
+     * Initializes this instance of {@link RequestContextDeclarations}.
+     *
+     * @param headers    names of the request headers to copy
+     * @param attributes names of the request attributes to copy in addition to the request deadline
+     */
+    public RequestContextDeclarations(Collection<String> headers, Collection<String> attributes) {
+        this(headers, attributes, false);
+    }
+
+    /**
+     * Initializes this instance of {@link RequestContextDeclarations}.
+     *
+     * @param headers        names of the request headers to copy
+     * @param attributes     names of the request attributes to copy in addition to the request deadline
+     * @param liveAttributes <code>true</code> to propagate the live request attributes instead of a snapshot
+     */
+    public RequestContextDeclarations(Collection<String> headers, Collection<String> attributes,
+                                      boolean liveAttributes) {
+        Set<String> headerNames = new LinkedHashSet<>();
+        for (String name : headers) {
+            headerNames.add(name.toLowerCase(Locale.ENGLISH));
+        }
+
+        Set<String> attributeNames = new LinkedHashSet<>(attributes);
+        attributeNames.add(Deadline.ATTRIBUTE);
+
+        this.headers = Collections.unmodifiableSet(headerNames);
+        this.attributes = Collections.unmodifiableSet(attributeNames);
+        this.liveAttributes = liveAttributes;
+    }
+
+    /**
+     * Captures request attributes for propagation to other threads.
+     *
+     * @param requestAttributes request attributes
+     * @return a {@link RequestContextSnapshot} of the request attributes, or the request attributes themselves if
+     * {@link #isLiveAttributes()}
+     */
+    public RequestAttributes capture(RequestAttributes requestAttributes) {
+        return liveAttributes ? requestAttributes : RequestContextSnapshot.capture(requestAttributes, this);
+    }
+
+    /**
+     * Captures the request attributes bound to the current thread for propagation to other threads.
+     *
+     * @return the captured request attributes, see {@link #capture(RequestAttributes)}, or <code>null</code> if there
+     * is no request bound to the current thread
+     */
+    public RequestAttributes captureIfPresent() {
+        RequestAttributes current = RequestContextHolder.getRequestAttributes();
+        return current != null ? capture(current) : null;
+    }
+
+    /**
+     * @return lower case names of the request headers to copy
+     */
+    public Set<String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return names of the request attributes to copy, including the request deadline
+     */
+    public Set<String> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * @return <code>true</code> if the live request attributes are propagated instead of a snapshot
+     */
+    public boolean isLiveAttributes() {
+        return liveAttributes;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import org.springframework.cloud.sleuth.Tracer;
+import rx.functions.Action0;
+import rx.plugins.RxJavaSchedulersHook;
+
+/**
+ * Schedulers hook that captures the Spring request attributes, the logging MDC and the current trace span when an
+ * action is scheduled and restores them on the thread that executes the action.  The previous values of the
+ * executing thread are put back once the action has finished, so pooled scheduler threads never keep the context
+ * of a request they are no longer working on.  The context is captured as a {@link PropagatedContext}.
+ *
+ * <p>
+ * Unlike {@link RequestContextStashOperator}, which has to be added to every Observable, the hook applies to every
+ * action run by every {@link rx.Scheduler}.  It is registered by {@link RequestContextSchedulersHookConfiguration}.
+ * </p>
+ */
+public class RequestContextSchedulersHook extends RxJavaSchedulersHook {
+    private final Tracer tracer;
+    private final RequestContextDeclarations declarations;
+    private final RxJavaSchedulersHook delegate;
+
+    /**
+     * Initializes this instance of {@link RequestContextSchedulersHook}.
+     *
+     * @param tracer tracer used to continue the current span, or <code>null</code> if tracing is not available
+     * @param declarations request headers and attributes to propagate
+     * @param delegate previously registered hook that is applied to actions before this hook
+     */
+    public RequestContextSchedulersHook(Tracer tracer, RequestContextDeclarations declarations,
+                                        RxJavaSchedulersHook delegate) {
+        this.tracer = tracer;
+        this.declarations = declarations;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Action0 onSchedule(Action0 action) {
+        Action0 wrapped = delegate != null ? delegate.onSchedule(action) : action;
+
+        PropagatedContext context = PropagatedContext.capture(tracer, declarations);
+        if (context == null) {
+            // Nothing to propagate
+            return wrapped;
+        }
+
+        return () -> context.runWithin(wrapped::call);
+    }
+}
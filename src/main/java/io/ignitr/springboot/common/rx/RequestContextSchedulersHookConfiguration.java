@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.sleuth.Tracer;
+import org.springframework.context.annotation.Configuration;
+import rx.plugins.RxJavaErrorHandler;
+import rx.plugins.RxJavaObservableExecutionHook;
+import rx.plugins.RxJavaPlugins;
+import rx.plugins.RxJavaSchedulersHook;
+import rx.plugins.RxJavaSingleExecutionHook;
+import rx.schedulers.Schedulers;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Registers the {@link RequestContextSchedulersHook} with RxJava when the
+ * <code>ignition.rx.context-hook.enabled</code> property is set.
+ *
+ * <p>
+ * RxJava only allows a single hook of each type to be registered, so any hooks that are already registered, such
+ * as the one registered by Spring Cloud Sleuth, are kept and the existing schedulers hook is wrapped.
+ * </p>
+ *
+ * <p>
+ * The workers of the computation scheduler keep the schedulers hook that was registered when they were created, so
+ * the schedulers are reset after the hook has been registered.  Schedulers obtained before then have been shut down
+ * and must not be used any more; <code>Schedulers.computation()</code> and the other factory methods return the new
+ * instances, which apply the hook.
+ * </p>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "ignition.rx.context-hook", name = "enabled", havingValue = "true")
+public class RequestContextSchedulersHookConfiguration {
+
+    @Autowired(required = false)
+    private Tracer tracer;
+
+    @Autowired
+    private RequestContextDeclarations declarations;
+
+    @PostConstruct
+    public void registerHook() {
+        RxJavaPlugins plugins = RxJavaPlugins.getInstance();
+
+        RxJavaSchedulersHook schedulersHook = plugins.getSchedulersHook();
+        RxJavaErrorHandler errorHandler = plugins.getErrorHandler();
+        RxJavaObservableExecutionHook observableExecutionHook = plugins.getObservableExecutionHook();
+        RxJavaSingleExecutionHook singleExecutionHook = plugins.getSingleExecutionHook();
+
+        plugins.reset();
+        plugins.registerSchedulersHook(new RequestContextSchedulersHook(tracer, declarations, schedulersHook));
+        plugins.registerErrorHandler(errorHandler);
+        plugins.registerObservableExecutionHook(observableExecutionHook);
+        plugins.registerSingleExecutionHook(singleExecutionHook);
+        // reset() leaves the completable execution hook in place, and registering it again would fail
+
+        // Recreate the schedulers so that workers created before the hook was registered are replaced
+        Schedulers.reset();
+    }
+}
@@ -0,0 +1,357 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import io.ignitr.springboot.common.deadline.Deadline;
+import org.slf4j.MDC;
+import org.springframework.aop.scope.ScopedProxyUtils;
+import org.springframework.cloud.sleuth.Span;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.DestructionCallbackBindingListener;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+import java.security.Principal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable copy of the parts of a request that asynchronous processing needs, taken at the time the request was
+ * being handled.
+ *
+ * <p>
+ * Holding on to the live {@link ServletRequestAttributes} pins the whole {@link HttpServletRequest}, which the
+ * container may recycle once the response has been committed.  A snapshot instead copies only the declared headers
+ * and request attributes, the trace identifiers and the principal, and can safely be bound to other threads with
+ * {@link RequestContextHolder} for as long as an Observable lives.
+ * </p>
+ *
+ * <p>
+ * The copied request never changes.  Scoped proxy targets (<code>scopedTarget.*</code> attributes) that already
+ * exist on the request are copied as well, so request scoped beans resolved before the snapshot was taken are the
+ * request's own instances.  Request attributes that are set on a snapshot, such as request scoped beans that are first
+ * resolved on another thread, are kept in the snapshot itself for as long as it lives and are never written back to
+ * the request; their destruction callbacks are accepted but never run.
+ * </p>
+ *
+ * <p>
+ * Session scope is served by the session that existed when the snapshot was taken, so session scoped beans are shared
+ * with the session and their destruction callbacks run when it ends.  If there was no session, or it has been
+ * invalidated since, session attributes are kept in the snapshot the same way as request attributes.
+ * </p>
+ *
+ * <p>
+ * Code that casts {@link RequestContextHolder#currentRequestAttributes()} to {@link ServletRequestAttributes} fails
+ * against a snapshot; set <code>ignition.context.live-attributes</code> to propagate the live request attributes
+ * instead.
+ * </p>
+ *
+ * <p>
+ * The headers and attributes that are copied are determined by the {@link RequestContextDeclarations}.  The request
+ * {@link Deadline} is always copied.
+ * </p>
+ */
+public final class RequestContextSnapshot implements RequestAttributes {
+
+    private final String method;
+    private final String requestUri;
+    private final String sessionId;
+    private final Principal principal;
+    private final String traceId;
+    private final String spanId;
+    private final Map<String, String> headers;
+    private final Map<String, Object> attributes;
+    private final HttpSession session;
+    private final Map<String, Object> localRequestAttributes = new ConcurrentHashMap<>();
+    private final Map<String, Object> localSessionAttributes = new ConcurrentHashMap<>();
+
+    private RequestContextSnapshot(String method, String requestUri, HttpSession session, String sessionId,
+                                   Principal principal, Map<String, String> headers, Map<String, Object> attributes) {
+        this.method = method;
+        this.requestUri = requestUri;
+        this.session = session;
+        this.sessionId = sessionId;
+        this.principal = principal;
+        this.traceId = MDC.get(Span.TRACE_ID_NAME);
+        this.spanId = MDC.get(Span.SPAN_ID_NAME);
+        this.headers = headers;
+        this.attributes = attributes;
+    }
+
+    /**
+     * Takes a snapshot of the request bound to the current thread with the {@link RequestContextDeclarations#DEFAULT}
+     * declarations.
+     *
+     * @return snapshot of the current request
+     * @throws IllegalStateException if there is no request bound to the current thread
+     */
+    public static RequestContextSnapshot capture() {
+        return capture(RequestContextHolder.currentRequestAttributes(), RequestContextDeclarations.DEFAULT);
+    }
+
+    /**
+     * Takes a snapshot of the request bound to the current thread if there is one, with the
+     * {@link RequestContextDeclarations#DEFAULT} declarations.
+     *
+     * @return snapshot of the current request or <code>null</code> if there is no request bound to the current thread
+     */
+    public static RequestContextSnapshot captureIfPresent() {
+        return captureIfPresent(RequestContextDeclarations.DEFAULT);
+    }
+
+    /**
+     * Takes a snapshot of the request bound to the current thread if there is one.
+     *
+     * @param declarations headers and attributes to copy
+     * @return snapshot of the current request or <code>null</code> if there is no request bound to the current thread
+     */
+    public static RequestContextSnapshot captureIfPresent(RequestContextDeclarations declarations) {
+        RequestAttributes current = RequestContextHolder.getRequestAttributes();
+        return current != null ? capture(current, declarations) : null;
+    }
+
+    /**
+     * Takes a snapshot of the supplied request attributes with the {@link RequestContextDeclarations#DEFAULT}
+     * declarations.
+     *
+     * @param requestAttributes request attributes
+     * @return snapshot of the request attributes
+     */
+    public static RequestContextSnapshot capture(RequestAttributes requestAttributes) {
+        return capture(requestAttributes, RequestContextDeclarations.DEFAULT);
+    }
+
+    /**
+     * Takes a snapshot of the supplied request attributes.
+     *
+     * @param requestAttributes request attributes
+     * @param declarations      headers and attributes to copy
+     * @return snapshot of the request attributes
+     */
+    public static RequestContextSnapshot capture(RequestAttributes requestAttributes,
+                                                 RequestContextDeclarations declarations) {
+        if (requestAttributes instanceof RequestContextSnapshot) {
+            // The copied request of a snapshot never changes so it can be shared
+            return (RequestContextSnapshot) requestAttributes;
+        }
+
+        Map<String, Object> attributes = new HashMap<>();
+        for (String name : declarations.getAttributes()) {
+            Object value = requestAttributes.getAttribute(name, SCOPE_REQUEST);
+            if (value != null) {
+                attributes.put(name, value);
+            }
+        }
+
+        for (String name : requestAttributes.getAttributeNames(SCOPE_REQUEST)) {
+            if (ScopedProxyUtils.isScopedTarget(name)) {
+                attributes.put(name, requestAttributes.getAttribute(name, SCOPE_REQUEST));
+            }
+        }
+
+        if (!(requestAttributes instanceof ServletRequestAttributes)) {
+            return new RequestContextSnapshot(null, null, null, requestAttributes.getSessionId(), null,
+                    Collections.emptyMap(), attributes);
+        }
+
+        HttpServletRequest request = ((ServletRequestAttributes) requestAttributes).getRequest();
+
+        Map<String, String> headers = new HashMap<>();
+        for (String name : declarations.getHeaders()) {
+            String value = request.getHeader(name);
+            if (value != null) {
+                headers.put(name, value);
+            }
+        }
+
+        HttpSession session = request.getSession(false);
+
+        return new RequestContextSnapshot(request.getMethod(),
+                request.getRequestURI(),
+                session,
+                session != null ? session.getId() : null,
+                request.getUserPrincipal(),
+                headers,
+                attributes);
+    }
+
+    /**
+     * @return http method of the request
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return request uri
+     */
+    public String getRequestUri() {
+        return requestUri;
+    }
+
+    /**
+     * @return authenticated principal of the request or <code>null</code> if the request was not authenticated
+     */
+    public Principal getPrincipal() {
+        return principal;
+    }
+
+    /**
+     * @return distributed trace identifier of the request
+     */
+    public String getTraceId() {
+        return traceId;
+    }
+
+    /**
+     * @return distributed tracing span identifier of the request
+     */
+    public String getSpanId() {
+        return spanId;
+    }
+
+    /**
+     * Retrieves a copied request header.
+     *
+     * @param name header name
+     * @return header value or <code>null</code> if the header was not present or was not declared
+     */
+    public String getHeader(String name) {
+        return headers.get(name.toLowerCase(Locale.ENGLISH));
+    }
+
+    @Override
+    public Object getAttribute(String name, int scope) {
+        if (scope != SCOPE_REQUEST) {
+            HttpSession live = liveSession();
+            return live != null ? live.getAttribute(name) : localSessionAttributes.get(name);
+        }
+
+        Object value = localRequestAttributes.get(name);
+        return value != null ? value : attributes.get(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value, int scope) {
+        if (scope != SCOPE_REQUEST) {
+            HttpSession live = liveSession();
+            if (live != null) {
+                live.setAttribute(name, value);
+                return;
+            }
+        }
+
+        if (value != null) {
+            local(scope).put(name, value);
+        } else {
+            local(scope).remove(name);
+        }
+    }
+
+    @Override
+    public void removeAttribute(String name, int scope) {
+        if (scope != SCOPE_REQUEST) {
+            HttpSession live = liveSession();
+            if (live != null) {
+                live.removeAttribute(name);
+                live.removeAttribute(ServletRequestAttributes.DESTRUCTION_CALLBACK_NAME_PREFIX + name);
+                return;
+            }
+        }
+
+        // Copied attributes are left untouched
+        local(scope).remove(name);
+    }
+
+    @Override
+    public String[] getAttributeNames(int scope) {
+        if (scope != SCOPE_REQUEST) {
+            HttpSession live = liveSession();
+            if (live != null) {
+                return StringUtils.toStringArray(live.getAttributeNames());
+            }
+        }
+
+        Set<String> names = new LinkedHashSet<>(local(scope).keySet());
+        if (scope == SCOPE_REQUEST) {
+            names.addAll(attributes.keySet());
+        }
+
+        return names.toArray(new String[names.size()]);
+    }
+
+    @Override
+    public void registerDestructionCallback(String name, Runnable callback, int scope) {
+        if (scope != SCOPE_REQUEST) {
+            HttpSession live = liveSession();
+            if (live != null) {
+                // Same binding the servlet request attributes use, so the session runs the callback when it ends
+                live.setAttribute(ServletRequestAttributes.DESTRUCTION_CALLBACK_NAME_PREFIX + name,
+                        new DestructionCallbackBindingListener(callback));
+            }
+        }
+
+        // A snapshot never completes, so there is nothing to run request callbacks on
+    }
+
+    @Override
+    public Object resolveReference(String key) {
+        return null;
+    }
+
+    @Override
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    @Override
+    public Object getSessionMutex() {
+        HttpSession live = liveSession();
+        return live != null ? WebUtils.getSessionMutex(live) : this;
+    }
+
+    /**
+     * @return session that existed when the snapshot was taken or <code>null</code> if there was none or it has since
+     * been invalidated
+     */
+    private HttpSession liveSession() {
+        if (session == null) {
+            return null;
+        }
+
+        try {
+            // Any access on an invalidated session throws
+            session.getCreationTime();
+            return session;
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    private Map<String, Object> local(int scope) {
+        return scope == SCOPE_REQUEST ? localRequestAttributes : localSessionAttributes;
+    }
+}
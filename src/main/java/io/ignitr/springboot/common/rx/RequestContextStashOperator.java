@@ -23,35 +23,153 @@ import rx.Subscriber;
 
 /**
  * Operator that handles setting the Spring request attributes from the constructing thread onto the
- * execution thread of an Observable.
+ * execution thread of an Observable.  The attributes are captured as a {@link RequestContextSnapshot} so that
+ * the Observable does not hold on to the live request, unless {@link RequestContextDeclarations#isLiveAttributes()}.
+ *
+ * <p>
+ * The returned subscriber is chained to the downstream subscriber, so backpressure requests and unsubscription
+ * propagate through the operator.  The request attributes are bound only for the duration of each notification and
+ * the previous attributes of the delivering thread are restored as soon as the downstream subscriber returns, so
+ * threads never keep the attributes of a stream, whether it terminates, is unsubscribed from or hops threads.
+ * </p>
+ *
+ * <p>
+ * Code that may also run outside of a request, such as at startup or from a scheduled task, should use
+ * {@link #ifPresent()}, which passes notifications through untouched when there is no request to capture.
+ * </p>
  *
  * @param <T>
  */
 public class RequestContextStashOperator<T> implements Observable.Operator<T, T> {
     private final RequestAttributes attributes;
 
+    /**
+     * Captures the request of the current thread with the {@link RequestContextDeclarations#DEFAULT} declarations.
+     *
+     * @throws IllegalStateException if there is no request bound to the current thread
+     */
     public RequestContextStashOperator() {
-        attributes = RequestContextHolder.currentRequestAttributes();
+        this(RequestContextDeclarations.DEFAULT);
+    }
+
+    /**
+     * Captures the request of the current thread.
+     *
+     * @param declarations request headers and attributes to copy
+     * @throws IllegalStateException if there is no request bound to the current thread
+     */
+    public RequestContextStashOperator(RequestContextDeclarations declarations) {
+        this(declarations.capture(RequestContextHolder.currentRequestAttributes()));
+    }
+
+    private RequestContextStashOperator(RequestAttributes attributes) {
+        this.attributes = attributes;
+    }
+
+    /**
+     * Captures the request of the current thread with the {@link RequestContextDeclarations#DEFAULT} declarations if
+     * there is one.
+     *
+     * @param <T> item type
+     * @return operator that stashes the current request, or passes notifications through if there is none
+     */
+    public static <T> RequestContextStashOperator<T> ifPresent() {
+        return ifPresent(RequestContextDeclarations.DEFAULT);
+    }
+
+    /**
+     * Captures the request of the current thread if there is one.
+     *
+     * @param declarations request headers and attributes to copy
+     * @param <T>          item type
+     * @return operator that stashes the current request, or passes notifications through if there is none
+     */
+    public static <T> RequestContextStashOperator<T> ifPresent(RequestContextDeclarations declarations) {
+        return new RequestContextStashOperator<>(declarations.captureIfPresent());
     }
 
     @Override
     public Subscriber<? super T> call(Subscriber<? super T> subscriber) {
-        return new Subscriber<T>() {
-            @Override
-            public void onCompleted() {
-                subscriber.onCompleted();
+        if (attributes == null) {
+            return subscriber;
+        }
+
+        return new StashSubscriber<>(subscriber, attributes);
+    }
+
+    /**
+     * Subscriber that sets the request attributes while passing notifications to the downstream subscriber.
+     *
+     * @param <T>
+     */
+    private static final class StashSubscriber<T> extends Subscriber<T> {
+        private final Subscriber<? super T> actual;
+        private final RequestAttributes attributes;
+
+        StashSubscriber(Subscriber<? super T> actual, RequestAttributes attributes) {
+            // Shares the subscription list of the downstream subscriber and passes its producer upstream
+            super(actual);
+            this.actual = actual;
+            this.attributes = attributes;
+        }
+
+        @Override
+        public void onNext(T t) {
+            RequestAttributes previous = install();
+            try {
+                actual.onNext(t);
+            } finally {
+                restore(previous);
+            }
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            RequestAttributes previous = install();
+            try {
+                actual.onError(e);
+            } finally {
+                restore(previous);
             }
+        }
 
-            @Override
-            public void onError(Throwable e) {
-                subscriber.onError(e);
+        @Override
+        public void onCompleted() {
+            RequestAttributes previous = install();
+            try {
+                actual.onCompleted();
+            } finally {
+                restore(previous);
             }
+        }
 
-            @Override
-            public void onNext(T t) {
+        /**
+         * Sets the request attributes on the current thread if it does not already hold them.
+         *
+         * @return the attributes the thread held before, to be passed to {@link #restore(RequestAttributes)}
+         */
+        private RequestAttributes install() {
+            RequestAttributes previous = RequestContextHolder.getRequestAttributes();
+            if (previous != attributes) {
                 RequestContextHolder.setRequestAttributes(attributes);
-                subscriber.onNext(t);
             }
-        };
+
+            return previous;
+        }
+
+        /**
+         * Restores the attributes the current thread held before {@link #install()} was called.
+         */
+        private void restore(RequestAttributes previous) {
+            if (previous == attributes) {
+                return;
+            }
+
+            if (previous != null) {
+                RequestContextHolder.setRequestAttributes(previous);
+            } else {
+                RequestContextHolder.resetRequestAttributes();
+            }
+        }
     }
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the extra calls made by {@link RetryWithBackoff} and {@link HedgedRequest} to a fraction of the original
+ * calls, so that retries cannot multiply the load on a dependency that is already failing.
+ *
+ * <p>
+ * Every original call deposits <code>ratio</code> tokens into the budget, up to its capacity, and every retry or
+ * hedged call withdraws a whole token.  The budget starts full so that retries are possible before any calls have
+ * been made.  Deposits and withdrawals are lock-free.
+ * </p>
+ */
+public class RetryBudget implements PublicMetrics {
+    private static final long SCALE = 1000;
+
+    private final String name;
+    private final long deposit;
+    private final long capacity;
+    private final AtomicLong balance;
+    private final AtomicLong granted = new AtomicLong();
+    private final AtomicLong denied = new AtomicLong();
+
+    /**
+     * Initializes this instance of {@link RetryBudget}.
+     *
+     * @param name     name used for the metrics of the budget
+     * @param ratio    tokens deposited per original call, for example <code>0.1</code> to allow one retry for every
+     *                 ten calls
+     * @param capacity maximum number of tokens held by the budget
+     * @throws IllegalArgumentException if the ratio or the capacity is negative
+     */
+    public RetryBudget(String name, double ratio, int capacity) {
+        if (!(ratio >= 0)) {
+            throw new IllegalArgumentException("The ratio must not be negative but was " + ratio);
+        }
+
+        if (capacity < 0) {
+            throw new IllegalArgumentException("The capacity must not be negative but was " + capacity);
+        }
+
+        this.name = name;
+        this.deposit = Math.round(ratio * SCALE);
+        this.capacity = capacity * SCALE;
+        this.balance = new AtomicLong(this.capacity);
+    }
+
+    /**
+     * Records an original call.
+     */
+    public void deposit() {
+        long current;
+        do {
+            current = balance.get();
+            if (current >= capacity) {
+                return;
+            }
+        } while (!balance.compareAndSet(current, Math.min(capacity, current + deposit)));
+    }
+
+    /**
+     * Withdraws a token for a retry or hedged call.
+     *
+     * @return <code>true</code> if the call is within the budget; otherwise <code>false</code>
+     */
+    public boolean tryWithdraw() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < SCALE) {
+                denied.incrementAndGet();
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - SCALE));
+
+        granted.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * @return number of whole tokens currently available
+     */
+    public long getAvailable() {
+        return balance.get() / SCALE;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+
+        String prefix = "retrybudget." + name;
+        metrics.add(new Metric<>(prefix + ".available", getAvailable()));
+        metrics.add(new Metric<>(prefix + ".granted", granted.get()));
+        metrics.add(new Metric<>(prefix + ".denied", denied.get()));
+
+        return metrics;
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import com.google.common.base.Throwables;
+import io.ignitr.springboot.common.error.IgnitionException;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import rx.Observable;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retries Observables that fail with a retryable {@link IgnitionException}, waiting an exponentially growing delay
+ * with full jitter between attempts.
+ *
+ * <p>
+ * Only errors whose root cause is an {@link IgnitionException} with one of the retryable statuses are retried, by
+ * default 502, 503 and 504.  The delay before attempt <code>n</code> is chosen uniformly between zero and
+ * <code>min(maxDelay, baseDelay * 2^n)</code>, which spreads out the retries of clients that failed at the same time.
+ * When a {@link RetryBudget} is configured every retry has to be granted by it.
+ * </p>
+ *
+ * <pre>
+ * RetryWithBackoff retry = RetryWithBackoff.builder("inventory")
+ *         .maxRetries(3)
+ *         .baseDelay(50, TimeUnit.MILLISECONDS)
+ *         .budget(inventoryBudget)
+ *         .build();
+ *
+ * inventoryClient.getStock(sku).compose(retry.retry());
+ * </pre>
+ */
+public class RetryWithBackoff implements PublicMetrics {
+    private final String name;
+    private final int maxRetries;
+    private final long baseDelay;
+    private final long maxDelay;
+    private final Set<Integer> retryableStatuses;
+    private final RetryBudget budget;
+    private final Scheduler scheduler;
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+    private final AtomicLong budgetDenied = new AtomicLong();
+
+    private RetryWithBackoff(Builder builder) {
+        this.name = builder.name;
+        this.maxRetries = builder.maxRetries;
+        this.baseDelay = builder.baseDelay;
+        this.maxDelay = builder.maxDelay;
+        this.retryableStatuses = builder.retryableStatuses;
+        this.budget = builder.budget;
+        this.scheduler = builder.scheduler;
+    }
+
+    /**
+     * Creates a builder for a {@link RetryWithBackoff}.
+     *
+     * @param name name used for the metrics of the operator
+     * @return operator builder
+     */
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    /**
+     * Creates a transformer that applies this retry policy to an Observable.
+     *
+     * @param <T> item type
+     * @return retrying transformer
+     */
+    public <T> Observable.Transformer<T, T> retry() {
+        return source -> Observable.defer(() -> {
+            if (budget != null) {
+                budget.deposit();
+            }
+
+            AtomicInteger attempt = new AtomicInteger();
+            return source.retryWhen(errors -> errors.flatMap(e -> {
+                if (!isRetryable(e)) {
+                    return Observable.error(e);
+                }
+
+                int n = attempt.getAndIncrement();
+                if (n >= maxRetries) {
+                    exhausted.incrementAndGet();
+                    return Observable.error(e);
+                }
+
+                if (budget != null && !budget.tryWithdraw()) {
+                    budgetDenied.incrementAndGet();
+                    return Observable.error(e);
+                }
+
+                retries.incrementAndGet();
+                return Observable.timer(delay(n), TimeUnit.NANOSECONDS, scheduler);
+            }));
+        });
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+
+        String prefix = "retry." + name;
+        metrics.add(new Metric<>(prefix + ".retries", retries.get()));
+        metrics.add(new Metric<>(prefix + ".exhausted", exhausted.get()));
+        metrics.add(new Metric<>(prefix + ".budgetdenied", budgetDenied.get()));
+
+        return metrics;
+    }
+
+    private boolean isRetryable(Throwable e) {
+        Throwable rootCause = Throwables.getRootCause(e);
+
+        return rootCause instanceof IgnitionException
+                && retryableStatuses.contains(((IgnitionException) rootCause).getHttpStatus().value());
+    }
+
+    /**
+     * @param attempt zero-based number of the retry
+     * @return randomized delay in nanoseconds before the retry
+     */
+    private long delay(int attempt) {
+        long ceiling = attempt < 62 ? baseDelay << attempt : Long.MAX_VALUE;
+        if (ceiling <= 0 || ceiling > maxDelay) {
+            ceiling = maxDelay;
+        }
+
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * Builder for a {@link RetryWithBackoff}.
+     */
+    public static class Builder {
+        private final String name;
+        private int maxRetries = 3;
+        private long baseDelay = TimeUnit.MILLISECONDS.toNanos(50);
+        private long maxDelay = TimeUnit.SECONDS.toNanos(2);
+        private Set<Integer> retryableStatuses = new HashSet<>(Arrays.asList(502, 503, 504));
+        private RetryBudget budget;
+        private Scheduler scheduler = Schedulers.computation();
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @param maxRetries maximum number of retries after the original attempt
+         * @return this builder
+         */
+        public Builder maxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        /**
+         * @param duration delay ceiling of the first retry, which doubles with each following retry, not negative
+         * @param unit     unit of the duration
+         * @return this builder
+         * @throws IllegalArgumentException if the duration is negative
+         */
+        public Builder baseDelay(long duration, TimeUnit unit) {
+            if (duration < 0) {
+                throw new IllegalArgumentException("The base delay must not be negative but was " + duration);
+            }
+
+            this.baseDelay = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * @param duration maximum delay between retries, not negative
+         * @param unit     unit of the duration
+         * @return this builder
+         * @throws IllegalArgumentException if the duration is negative
+         */
+        public Builder maxDelay(long duration, TimeUnit unit) {
+            if (duration < 0) {
+                throw new IllegalArgumentException("The max delay must not be negative but was " + duration);
+            }
+
+            this.maxDelay = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * @param statuses http statuses of the {@link IgnitionException}s that are retried
+         * @return this builder
+         */
+        public Builder retryableStatuses(Integer... statuses) {
+            this.retryableStatuses = new HashSet<>(Arrays.asList(statuses));
+            return this;
+        }
+
+        /**
+         * @param budget budget that has to grant every retry
+         * @return this builder
+         */
+        public Builder budget(RetryBudget budget) {
+            this.budget = budget;
+            return this;
+        }
+
+        /**
+         * @param scheduler scheduler on which the delays are timed
+         * @return this builder
+         */
+        public Builder scheduler(Scheduler scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * @return the operator
+         */
+        public RetryWithBackoff build() {
+            return new RetryWithBackoff(this);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import rx.Observable;
+import rx.functions.Func0;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Coalesces concurrent calls for the same key into a single upstream call.
+ *
+ * <p>
+ * While a call for a key is in flight, every other subscription for that key shares the same upstream Observable
+ * and receives the same items instead of starting a call of its own.  Once the call terminates the key is released
+ * and the next subscription starts a new call.  Each subscriber receives its items within its own request context,
+ * captured by a {@link RequestContextStashOperator} when {@link #execute(Object, Func0)} is called.  Calls made outside
+ * of a request are coalesced as well and simply run without a request context.
+ * </p>
+ *
+ * <p>
+ * Declaring an instance as a bean publishes the number of executed and coalesced calls as metrics.
+ * </p>
+ *
+ * <pre>
+ * private final SingleFlight&lt;String, Product&gt; products = new SingleFlight&lt;&gt;("products");
+ *
+ * public Observable&lt;Product&gt; getProduct(String id) {
+ *     return products.execute(id, () -&gt; productClient.getProduct(id));
+ * }
+ * </pre>
+ *
+ * @param <K> key type
+ * @param <T> item type
+ */
+public class SingleFlight<K, T> implements PublicMetrics {
+    private final String name;
+    private final ConcurrentMap<K, Observable<T>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Initializes this instance of {@link SingleFlight}.
+     *
+     * @param name name used for the metrics of this instance
+     */
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns an Observable that shares the call in flight for the key, or starts a new call when there is none.
+     *
+     * @param key  key identifying the call
+     * @param call factory of the upstream Observable, only invoked when no call for the key is in flight
+     * @return Observable emitting the items of the shared call
+     */
+    public Observable<T> execute(K key, Func0<Observable<T>> call) {
+        RequestContextStashOperator<T> stash = RequestContextStashOperator.ifPresent();
+
+        return Observable.defer(() -> {
+            Observable<T> shared = inFlight.get(key);
+            if (shared != null) {
+                coalesced.incrementAndGet();
+                return shared;
+            }
+
+            Observable<T> created = share(key, call);
+            shared = inFlight.putIfAbsent(key, created);
+            if (shared != null) {
+                coalesced.incrementAndGet();
+                return shared;
+            }
+
+            executed.incrementAndGet();
+            return created;
+        }).lift(stash);
+    }
+
+    /**
+     * @return number of calls that were started
+     */
+    public long getExecuted() {
+        return executed.get();
+    }
+
+    /**
+     * @return number of subscriptions that shared a call already in flight
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * @return number of calls currently in flight
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+
+        String prefix = "singleflight." + name;
+        metrics.add(new Metric<>(prefix + ".executed", executed.get()));
+        metrics.add(new Metric<>(prefix + ".coalesced", coalesced.get()));
+        metrics.add(new Metric<>(prefix + ".inflight", inFlight.size()));
+
+        return metrics;
+    }
+
+    /**
+     * Creates the shared Observable for a key.  The key is released before the terminal notification is delivered,
+     * so subscriptions made after the call has finished always start a new call.  Items are replayed to
+     * subscribers that join a call that has already emitted.
+     */
+    private Observable<T> share(K key, Func0<Observable<T>> call) {
+        AtomicReference<Observable<T>> self = new AtomicReference<>();
+
+        Observable<T> shared = Observable.defer(call)
+                .doOnTerminate(() -> inFlight.remove(key, self.get()))
+                .doOnUnsubscribe(() -> inFlight.remove(key, self.get()))
+                .replay()
+                .refCount();
+
+        self.set(shared);
+        return shared;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Enumeration of the formats in which {@link ObservableStreamer} can stream the items of an Observable.
+ */
+public enum StreamFormat {
+    JSON_ARRAY("application/json", "[", ",", "]", "", ""),
+    NDJSON("application/x-ndjson", "", "", "", "", "\n"),
+    SSE("text/event-stream", "", "", "", "data: ", "\n\n");
+
+    private final String contentType;
+    private final byte[] prefix;
+    private final byte[] separator;
+    private final byte[] suffix;
+    private final byte[] itemPrefix;
+    private final byte[] itemSuffix;
+
+    StreamFormat(final String contentType, final String prefix, final String separator, final String suffix,
+                 final String itemPrefix, final String itemSuffix) {
+        this.contentType = contentType;
+        this.prefix = prefix.getBytes(StandardCharsets.UTF_8);
+        this.separator = separator.getBytes(StandardCharsets.UTF_8);
+        this.suffix = suffix.getBytes(StandardCharsets.UTF_8);
+        this.itemPrefix = itemPrefix.getBytes(StandardCharsets.UTF_8);
+        this.itemSuffix = itemSuffix.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return content type of the streamed response
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return bytes written before the first item
+     */
+    public byte[] getPrefix() {
+        return prefix.clone();
+    }
+
+    /**
+     * @return bytes written after the last item
+     */
+    public byte[] getSuffix() {
+        return suffix.clone();
+    }
+
+    /**
+     * Frames a serialized item for writing to the stream.
+     *
+     * @param item serialized item
+     * @param first <code>true</code> if this is the first item in the stream; otherwise <code>false</code>
+     * @return framed item
+     */
+    public byte[] frame(byte[] item, boolean first) {
+        int separatorLength = first ? 0 : separator.length;
+        byte[] framed = new byte[separatorLength + itemPrefix.length + item.length + itemSuffix.length];
+
+        System.arraycopy(separator, 0, framed, 0, separatorLength);
+        System.arraycopy(itemPrefix, 0, framed, separatorLength, itemPrefix.length);
+        System.arraycopy(item, 0, framed, separatorLength + itemPrefix.length, item.length);
+        System.arraycopy(itemSuffix, 0, framed, separatorLength + itemPrefix.length + item.length, itemSuffix.length);
+
+        return framed;
+    }
+}
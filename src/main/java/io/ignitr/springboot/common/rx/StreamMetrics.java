@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import com.google.common.base.Throwables;
+import io.ignitr.springboot.common.error.IgnitionException;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free counters of a named reactive pipeline, recorded by {@link InstrumentedOperator} and published by
+ * {@link StreamMetricsPublisher}.
+ */
+public final class StreamMetrics {
+    private static final ConcurrentMap<String, StreamMetrics> REGISTRY = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final LongAdder subscriptions = new LongAdder();
+    private final LongAdder active = new LongAdder();
+    private final LongAdder items = new LongAdder();
+    private final LongAdder completions = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder unsubscribes = new LongAdder();
+    private final LongAdder firstItems = new LongAdder();
+    private final LongAdder firstItemTime = new LongAdder();
+    private final LongAdder terminations = new LongAdder();
+    private final LongAdder duration = new LongAdder();
+    private final ConcurrentMap<String, LongAdder> errorsByCode = new ConcurrentHashMap<>();
+
+    private StreamMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Retrieves the metrics of a pipeline, creating them when they do not exist yet.
+     *
+     * @param name pipeline name
+     * @return metrics of the pipeline
+     */
+    public static StreamMetrics forName(String name) {
+        StreamMetrics metrics = REGISTRY.get(name);
+        if (metrics == null) {
+            metrics = REGISTRY.computeIfAbsent(name, StreamMetrics::new);
+        }
+
+        return metrics;
+    }
+
+    /**
+     * @return metrics of every pipeline that has been instrumented
+     */
+    public static Collection<StreamMetrics> all() {
+        return Collections.unmodifiableCollection(REGISTRY.values());
+    }
+
+    void subscribed() {
+        subscriptions.increment();
+        active.increment();
+    }
+
+    void item(long sinceSubscribe, boolean first) {
+        items.increment();
+        if (first) {
+            firstItems.increment();
+            firstItemTime.add(sinceSubscribe);
+        }
+    }
+
+    void completed(long sinceSubscribe) {
+        completions.increment();
+        terminated(sinceSubscribe);
+    }
+
+    void failed(long sinceSubscribe, Throwable e) {
+        errors.increment();
+        errorsByCode.computeIfAbsent(errorCode(e), code -> new LongAdder()).increment();
+        terminated(sinceSubscribe);
+    }
+
+    void unsubscribed() {
+        unsubscribes.increment();
+        active.decrement();
+    }
+
+    private void terminated(long sinceSubscribe) {
+        active.decrement();
+        terminations.increment();
+        duration.add(sinceSubscribe);
+    }
+
+    /**
+     * @return name of the pipeline
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return number of subscriptions that have neither terminated nor been unsubscribed
+     */
+    public long getActive() {
+        return active.sum();
+    }
+
+    /**
+     * @return the metrics of the pipeline in actuator form
+     */
+    public List<Metric<?>> toMetrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+
+        String prefix = "rx." + name;
+        metrics.add(new Metric<>(prefix + ".subscriptions", subscriptions.sum()));
+        metrics.add(new Metric<>(prefix + ".active", active.sum()));
+        metrics.add(new Metric<>(prefix + ".items", items.sum()));
+        metrics.add(new Metric<>(prefix + ".completed", completions.sum()));
+        metrics.add(new Metric<>(prefix + ".errors", errors.sum()));
+        metrics.add(new Metric<>(prefix + ".unsubscribed", unsubscribes.sum()));
+        metrics.add(new Metric<>(prefix + ".firstitem.mean", meanMillis(firstItemTime, firstItems)));
+        metrics.add(new Metric<>(prefix + ".duration.mean", meanMillis(duration, terminations)));
+
+        for (Map.Entry<String, LongAdder> entry : errorsByCode.entrySet()) {
+            metrics.add(new Metric<>(prefix + ".errors." + entry.getKey(), entry.getValue().sum()));
+        }
+
+        return metrics;
+    }
+
+    private static double meanMillis(LongAdder total, LongAdder count) {
+        long n = count.sum();
+        return n == 0 ? 0.0 : (double) total.sum() / n / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static String errorCode(Throwable e) {
+        Throwable rootCause = Throwables.getRootCause(e);
+
+        if (rootCause instanceof IgnitionException) {
+            IgnitionException error = (IgnitionException) rootCause;
+            return error.getErrorCode() != null ? error.getErrorCode().getValue() : "UNKNOWN";
+        }
+
+        return "UNHANDLED";
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.sleuth.Tracer;
+import org.springframework.stereotype.Component;
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.schedulers.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduler and executor for blocking work that run every task on a virtual thread on Java 21 and later, and on a
+ * pooled platform thread on older JVMs.  Enabled with the <code>ignition.virtual-threads.enabled</code> property.
+ *
+ * <p>
+ * Use {@link #getScheduler()} in place of {@link Schedulers#io()} for blocking calls.  The request attributes,
+ * logging MDC and trace span of the scheduling thread are propagated to every task as a {@link PropagatedContext}
+ * and cleared again afterwards, so context propagation works the same on virtual threads as on platform threads.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(prefix = "ignition.virtual-threads", name = "enabled", havingValue = "true")
+public class VirtualThreadScheduler {
+    private static final Logger LOG = LoggerFactory.getLogger(VirtualThreadScheduler.class);
+
+    private final Tracer tracer;
+    private final RequestContextDeclarations declarations;
+    private final ExecutorService executorService;
+    private final Executor executor;
+    private final Scheduler scheduler;
+
+    @Autowired
+    public VirtualThreadScheduler(Optional<Tracer> tracer, RequestContextDeclarations declarations) {
+        this.tracer = tracer.orElse(null);
+        this.declarations = declarations;
+        this.executorService = VirtualThreads.newThreadPerTaskExecutor("ignition-vt");
+        this.executor = task -> {
+            PropagatedContext context = PropagatedContext.capture(this.tracer, declarations);
+            executorService.execute(context != null ? () -> context.runWithin(task) : task);
+        };
+        this.scheduler = new ContextScheduler(Schedulers.from(executorService));
+
+        LOG.info("Blocking work will run on {} threads", VirtualThreads.isSupported() ? "virtual" : "platform");
+    }
+
+    /**
+     * @return scheduler that runs actions on virtual threads when they are supported
+     */
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * @return executor that runs tasks on virtual threads when they are supported
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @return <code>true</code> if tasks run on virtual threads; otherwise <code>false</code>
+     */
+    public boolean isVirtual() {
+        return VirtualThreads.isSupported();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * Scheduler that captures the context of each action when it is scheduled.  The executor scheduler of RxJava
+     * runs the queued actions of a worker in a single task, so the context has to be captured per action rather
+     * than per task.
+     */
+    private class ContextScheduler extends Scheduler {
+        private final Scheduler delegate;
+
+        ContextScheduler(Scheduler delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Worker createWorker() {
+            Worker worker = delegate.createWorker();
+
+            return new Worker() {
+                @Override
+                public Subscription schedule(Action0 action) {
+                    return worker.schedule(wrap(action));
+                }
+
+                @Override
+                public Subscription schedule(Action0 action, long delayTime, TimeUnit unit) {
+                    return worker.schedule(wrap(action), delayTime, unit);
+                }
+
+                @Override
+                public void unsubscribe() {
+                    worker.unsubscribe();
+                }
+
+                @Override
+                public boolean isUnsubscribed() {
+                    return worker.isUnsubscribed();
+                }
+            };
+        }
+
+        private Action0 wrap(Action0 action) {
+            PropagatedContext context = PropagatedContext.capture(tracer, declarations);
+            return context != null ? () -> context.runWithin(action::call) : action;
+        }
+    }
+}
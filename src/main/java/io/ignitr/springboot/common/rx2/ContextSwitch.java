@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx2;
+
+import io.ignitr.springboot.common.rx.RequestContextSnapshot;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Binds captured request attributes, usually a {@link RequestContextSnapshot}, to the current thread for the duration
+ * of a signal.
+ */
+final class ContextSwitch {
+
+    private ContextSwitch() {
+        // Static utility
+    }
+
+    /**
+     * Binds the snapshot to the current thread unless it is already bound.
+     *
+     * @param snapshot snapshot to bind
+     * @return the attributes that were bound before, to be passed to {@link #restore}
+     */
+    static RequestAttributes install(RequestAttributes snapshot) {
+        RequestAttributes previous = RequestContextHolder.getRequestAttributes();
+        if (previous != snapshot) {
+            RequestContextHolder.setRequestAttributes(snapshot);
+        }
+
+        return previous;
+    }
+
+    /**
+     * Restores the attributes that were bound before {@link #install} was called.
+     *
+     * @param snapshot snapshot that was bound
+     * @param previous attributes returned by {@link #install}
+     */
+    static void restore(RequestAttributes snapshot, RequestAttributes previous) {
+        if (previous == snapshot) {
+            return;
+        }
+
+        if (previous != null) {
+            RequestContextHolder.setRequestAttributes(previous);
+        } else {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+}
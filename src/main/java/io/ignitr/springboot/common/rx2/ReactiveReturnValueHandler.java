@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx2;
+
+import io.ignitr.springboot.common.deadline.Deadline;
+import io.ignitr.springboot.common.error.CommonErrorCode;
+import io.ignitr.springboot.common.error.IgnitionRuntimeException;
+import io.ignitr.springboot.common.error.ObservableErrorHandler;
+import io.ignitr.springboot.common.rx.PropagatedContext;
+import io.ignitr.springboot.common.rx.RequestContextDeclarations;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.sleuth.Tracer;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.method.support.AsyncHandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Return value handler that allows controller methods to return an RxJava 2 {@link Single} or {@link Maybe}, or a
+ * Reactive Streams {@link Publisher} such as a {@link Flowable}.  It is the RxJava 2 counterpart of
+ * {@link io.ignitr.springboot.common.rx.ObservableReturnValueHandler}.
+ *
+ * <p>
+ * A Publisher is rendered as a list of all of its items, a Single as its value and a Maybe as its value or an empty
+ * body.  The result and any error are handled within the request attributes, logging MDC and trace span of the
+ * request, captured as a {@link PropagatedContext}, and errors are rendered by the {@link ObservableErrorHandler}.
+ * The request times out with a 503 <code>REQUEST_TIMEOUT</code> error after the configured timeout, or with a 504
+ * <code>DEADLINE_EXCEEDED</code> error when the request {@link Deadline} expires first.
+ * </p>
+ */
+public class ReactiveReturnValueHandler implements AsyncHandlerMethodReturnValueHandler {
+    private final ObservableErrorHandler errorHandler;
+    private final Tracer tracer;
+    private final RequestContextDeclarations declarations;
+    private final long timeout;
+
+    /**
+     * Initializes this instance of {@link ReactiveReturnValueHandler}.
+     *
+     * @param errorHandler handler that renders errors raised by the returned values
+     * @param tracer       tracer used to propagate the current span, or <code>null</code> if tracing is not available
+     * @param declarations request headers and attributes to propagate
+     * @param timeout      timeout in milliseconds, or <code>0</code> to use the default async timeout of the container
+     */
+    public ReactiveReturnValueHandler(ObservableErrorHandler errorHandler, Tracer tracer,
+                                      RequestContextDeclarations declarations, long timeout) {
+        this.errorHandler = errorHandler;
+        this.tracer = tracer;
+        this.declarations = declarations;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public boolean supportsReturnType(MethodParameter returnType) {
+        Class<?> type = returnType.getParameterType();
+        return Publisher.class.isAssignableFrom(type)
+                || Single.class.isAssignableFrom(type)
+                || Maybe.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public boolean isAsyncReturnValue(Object returnValue, MethodParameter returnType) {
+        return returnValue instanceof Publisher || returnValue instanceof Single || returnValue instanceof Maybe;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void handleReturnValue(Object returnValue, MethodParameter returnType, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest) throws Exception {
+        if (returnValue == null) {
+            mavContainer.setRequestHandled(true);
+            return;
+        }
+
+        Maybe<Object> maybe;
+        if (returnValue instanceof Single) {
+            maybe = ((Single<Object>) returnValue).toMaybe();
+        } else if (returnValue instanceof Maybe) {
+            maybe = (Maybe<Object>) returnValue;
+        } else {
+            maybe = Flowable.fromPublisher((Publisher<Object>) returnValue).toList().<Object>map(list -> list).toMaybe();
+        }
+
+        HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
+        PropagatedContext context = PropagatedContext.capture(tracer, declarations);
+
+        Deadline deadline = Deadline.current();
+        long remaining = deadline != null ? Math.max(1, deadline.remaining(TimeUnit.MILLISECONDS)) : 0;
+        boolean deadlineBound = deadline != null && (timeout <= 0 || remaining < timeout);
+
+        DeferredResult<Object> deferredResult = new DeferredResult<>(deadlineBound ? remaining : getTimeout());
+
+        Disposable disposable = maybe.subscribe(
+                value -> runWithin(context, () -> deferredResult.setResult(value)),
+                e -> runWithin(context, () -> deferredResult.setErrorResult(errorHandler.handleError(request, e))),
+                () -> runWithin(context, () -> deferredResult.setResult(null)));
+
+        deferredResult.onTimeout(() -> {
+            disposable.dispose();
+            deferredResult.setErrorResult(errorHandler.handleError(request, timeoutError(deadlineBound)));
+        });
+        deferredResult.onCompletion(disposable::dispose);
+
+        WebAsyncUtils.getAsyncManager(webRequest).startDeferredResultProcessing(deferredResult, mavContainer);
+    }
+
+    /**
+     * @return configured timeout in milliseconds, or <code>null</code> to use the container default
+     */
+    private Long getTimeout() {
+        return timeout > 0 ? timeout : null;
+    }
+
+    private static IgnitionRuntimeException timeoutError(boolean deadlineBound) {
+        if (deadlineBound) {
+            return new IgnitionRuntimeException(HttpStatus.GATEWAY_TIMEOUT, "Request deadline exceeded",
+                    CommonErrorCode.DEADLINE_EXCEEDED);
+        }
+
+        return new IgnitionRuntimeException(HttpStatus.SERVICE_UNAVAILABLE,
+                "The request did not complete within the allotted time", CommonErrorCode.REQUEST_TIMEOUT);
+    }
+
+    private static void runWithin(PropagatedContext context, Runnable task) {
+        if (context != null) {
+            context.runWithin(task);
+        } else {
+            task.run();
+        }
+    }
+}
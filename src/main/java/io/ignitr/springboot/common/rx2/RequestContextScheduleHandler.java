@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx2;
+
+import io.ignitr.springboot.common.rx.PropagatedContext;
+import io.ignitr.springboot.common.rx.RequestContextDeclarations;
+import io.reactivex.functions.Function;
+import org.springframework.cloud.sleuth.Tracer;
+
+/**
+ * RxJava 2 schedule handler that captures the Spring request attributes, the logging MDC and the current trace span
+ * when a task is scheduled and restores them on the thread that runs the task.  It is the RxJava 2 counterpart of
+ * {@link io.ignitr.springboot.common.rx.RequestContextSchedulersHook} and is registered by
+ * {@link RequestContextScheduleHandlerConfiguration}.
+ */
+public class RequestContextScheduleHandler implements Function<Runnable, Runnable> {
+    private final Tracer tracer;
+    private final RequestContextDeclarations declarations;
+    private final Function<? super Runnable, ? extends Runnable> delegate;
+
+    /**
+     * Initializes this instance of {@link RequestContextScheduleHandler}.
+     *
+     * @param tracer tracer used to continue the current span, or <code>null</code> if tracing is not available
+     * @param declarations request headers and attributes to propagate
+     * @param delegate previously registered handler that is applied to tasks before this handler
+     */
+    public RequestContextScheduleHandler(Tracer tracer, RequestContextDeclarations declarations,
+                                         Function<? super Runnable, ? extends Runnable> delegate) {
+        this.tracer = tracer;
+        this.declarations = declarations;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Runnable apply(Runnable task) throws Exception {
+        Runnable wrapped = delegate != null ? delegate.apply(task) : task;
+
+        PropagatedContext context = PropagatedContext.capture(tracer, declarations);
+        if (context == null) {
+            // Nothing to propagate
+            return wrapped;
+        }
+
+        return () -> context.runWithin(wrapped);
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx2;
+
+import io.ignitr.springboot.common.rx.RequestContextDeclarations;
+import io.reactivex.plugins.RxJavaPlugins;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.sleuth.Tracer;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Registers the {@link RequestContextScheduleHandler} with RxJava 2 when RxJava 2 is on the classpath and the
+ * <code>ignition.rx.context-hook.enabled</code> property is set.  Any schedule handler that is already registered
+ * is kept and wrapped.
+ */
+@Configuration
+@ConditionalOnClass(name = "io.reactivex.Flowable")
+@ConditionalOnProperty(prefix = "ignition.rx.context-hook", name = "enabled", havingValue = "true")
+public class RequestContextScheduleHandlerConfiguration {
+
+    @Autowired(required = false)
+    private Tracer tracer;
+
+    @Autowired
+    private RequestContextDeclarations declarations;
+
+    @PostConstruct
+    public void registerHandler() {
+        RxJavaPlugins.setScheduleHandler(new RequestContextScheduleHandler(tracer, declarations,
+                RxJavaPlugins.getScheduleHandler()));
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx2;
+
+import io.ignitr.springboot.common.rx.RequestContextDeclarations;
+import io.ignitr.springboot.common.rx.RequestContextSnapshot;
+import io.reactivex.Flowable;
+import io.reactivex.FlowableTransformer;
+import io.reactivex.Maybe;
+import io.reactivex.MaybeObserver;
+import io.reactivex.MaybeSource;
+import io.reactivex.MaybeTransformer;
+import io.reactivex.Single;
+import io.reactivex.SingleObserver;
+import io.reactivex.SingleSource;
+import io.reactivex.SingleTransformer;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.internal.subscribers.BasicFuseableSubscriber;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.springframework.web.context.request.RequestAttributes;
+
+/**
+ * Transformers that set the Spring request attributes from the assembling thread onto the threads that deliver the
+ * signals of RxJava 2 and Reactive Streams sources.  They are the RxJava 2 counterpart of
+ * {@link io.ignitr.springboot.common.rx.RequestContextStashOperator}.
+ *
+ * <p>
+ * The attributes are captured as a {@link RequestContextSnapshot} when the transformer is applied, with the
+ * {@link RequestContextDeclarations#DEFAULT} declarations unless others are given, or are the live request attributes
+ * if the declarations say so ({@link RequestContextDeclarations#isLiveAttributes()}), and are only bound for the
+ * duration of each signal, so the previous attributes of the delivering thread are always restored.
+ * Requests and cancellation are passed straight through, and synchronous operator fusion is preserved; fusion across
+ * an asynchronous boundary is declined because the upstream would then be polled on another thread.
+ * </p>
+ *
+ * <pre>
+ * productRepository.findAll()
+ *         .compose(RequestContextStash.flowable())
+ * </pre>
+ */
+public final class RequestContextStash {
+
+    private RequestContextStash() {
+        // Static utility
+    }
+
+    /**
+     * @param <T> item type
+     * @return transformer that propagates the current request context to a {@link Flowable}
+     */
+    public static <T> FlowableTransformer<T, T> flowable() {
+        return flowable(RequestContextDeclarations.DEFAULT);
+    }
+
+    /**
+     * @param declarations request headers and attributes to propagate
+     * @param <T>          item type
+     * @return transformer that propagates the current request context to a {@link Flowable}
+     */
+    public static <T> FlowableTransformer<T, T> flowable(RequestContextDeclarations declarations) {
+        return upstream -> {
+            RequestAttributes snapshot = declarations.captureIfPresent();
+            return snapshot != null ? new StashFlowable<>(upstream, snapshot) : upstream;
+        };
+    }
+
+    /**
+     * @param <T> value type
+     * @return transformer that propagates the current request context to a {@link Single}
+     */
+    public static <T> SingleTransformer<T, T> single() {
+        return single(RequestContextDeclarations.DEFAULT);
+    }
+
+    /**
+     * @param declarations request headers and attributes to propagate
+     * @param <T>          value type
+     * @return transformer that propagates the current request context to a {@link Single}
+     */
+    public static <T> SingleTransformer<T, T> single(RequestContextDeclarations declarations) {
+        return upstream -> {
+            RequestAttributes snapshot = declarations.captureIfPresent();
+            return snapshot != null ? new StashSingle<>(upstream, snapshot) : upstream;
+        };
+    }
+
+    /**
+     * @param <T> value type
+     * @return transformer that propagates the current request context to a {@link Maybe}
+     */
+    public static <T> MaybeTransformer<T, T> maybe() {
+        return maybe(RequestContextDeclarations.DEFAULT);
+    }
+
+    /**
+     * @param declarations request headers and attributes to propagate
+     * @param <T>          value type
+     * @return transformer that propagates the current request context to a {@link Maybe}
+     */
+    public static <T> MaybeTransformer<T, T> maybe(RequestContextDeclarations declarations) {
+        return upstream -> {
+            RequestAttributes snapshot = declarations.captureIfPresent();
+            return snapshot != null ? new StashMaybe<>(upstream, snapshot) : upstream;
+        };
+    }
+
+    /**
+     * Propagates the current request context to a Reactive Streams {@link Publisher}.
+     *
+     * @param publisher publisher
+     * @param <T>       item type
+     * @return flowable emitting the items of the publisher within the current request context
+     */
+    public static <T> Flowable<T> publisher(Publisher<T> publisher) {
+        return Flowable.fromPublisher(publisher).compose(flowable());
+    }
+
+    private static final class StashFlowable<T> extends Flowable<T> {
+        private final Publisher<T> source;
+        private final RequestAttributes snapshot;
+
+        StashFlowable(Publisher<T> source, RequestAttributes snapshot) {
+            this.source = source;
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        protected void subscribeActual(Subscriber<? super T> subscriber) {
+            source.subscribe(new StashSubscriber<>(subscriber, snapshot));
+        }
+    }
+
+    private static final class StashSubscriber<T> extends BasicFuseableSubscriber<T, T> {
+        private final RequestAttributes snapshot;
+
+        StashSubscriber(Subscriber<? super T> downstream, RequestAttributes snapshot) {
+            super(downstream);
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public void onNext(T t) {
+            if (sourceMode != NONE) {
+                // Fused: the downstream polls the items itself
+                downstream.onNext(null);
+                return;
+            }
+
+            RequestAttributes previous = ContextSwitch.install(snapshot);
+            try {
+                downstream.onNext(t);
+            } finally {
+                ContextSwitch.restore(snapshot, previous);
+            }
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            RequestAttributes previous = ContextSwitch.install(snapshot);
+            try {
+                super.onError(e);
+            } finally {
+                ContextSwitch.restore(snapshot, previous);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            RequestAttributes previous = ContextSwitch.install(snapshot);
+            try {
+                super.onComplete();
+            } finally {
+                ContextSwitch.restore(snapshot, previous);
+            }
+        }
+
+        @Override
+        public int requestFusion(int mode) {
+            return transitiveBoundaryFusion(mode);
+        }
+
+        @Override
+        public T poll() throws Exception {
+            RequestAttributes previous = ContextSwitch.install(snapshot);
+            try {
+                return qs.poll();
+            } finally {
+                ContextSwitch.restore(snapshot, previous);
+            }
+        }
+    }
+
+    private static final class StashSingle<T> extends Single<T> {
+        private final SingleSource<T> source;
+        private final RequestAttributes snapshot;
+
+        StashSingle(SingleSource<T> source, RequestAttributes snapshot) {
+            this.source = source;
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        protected void subscribeActual(SingleObserver<? super T> observer) {
+            source.subscribe(new SingleObserver<T>() {
+                @Override
+                public void onSubscribe(Disposable d) {
+                    observer.onSubscribe(d);
+                }
+
+                @Override
+                public void onSuccess(T t) {
+                    RequestAttributes previous = ContextSwitch.install(snapshot);
+                    try {
+                        observer.onSuccess(t);
+                    } finally {
+                        ContextSwitch.restore(snapshot, previous);
+                    }
+                }
+
+                @Override
+                public void onError(Throwable e) {
+                    RequestAttributes previous = ContextSwitch.install(snapshot);
+                    try {
+                        observer.onError(e);
+                    } finally {
+                        ContextSwitch.restore(snapshot, previous);
+                    }
+                }
+            });
+        }
+    }
+
+    private static final class StashMaybe<T> extends Maybe<T> {
+        private final MaybeSource<T> source;
+        private final RequestAttributes snapshot;
+
+        StashMaybe(MaybeSource<T> source, RequestAttributes snapshot) {
+            this.source = source;
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        protected void subscribeActual(MaybeObserver<? super T> observer) {
+            source.subscribe(new MaybeObserver<T>() {
+                @Override
+                public void onSubscribe(Disposable d) {
+                    observer.onSubscribe(d);
+                }
+
+                @Override
+                public void onSuccess(T t) {
+                    RequestAttributes previous = ContextSwitch.install(snapshot);
+                    try {
+                        observer.onSuccess(t);
+                    } finally {
+                        ContextSwitch.restore(snapshot, previous);
+                    }
+                }
+
+                @Override
+                public void onError(Throwable e) {
+                    RequestAttributes previous = ContextSwitch.install(snapshot);
+                    try {
+                        observer.onError(e);
+                    } finally {
+                        ContextSwitch.restore(snapshot, previous);
+                    }
+                }
+
+                @Override
+                public void onComplete() {
+                    RequestAttributes previous = ContextSwitch.install(snapshot);
+                    try {
+                        observer.onComplete();
+                    } finally {
+                        ContextSwitch.restore(snapshot, previous);
+                    }
+                }
+            });
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package io.ignitr.springboot.common.tracing;
 
+import io.ignitr.springboot.common.diagnostics.SlowRequestWatchdog;
 import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.sleuth.Span;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -18,13 +20,27 @@ import java.io.IOException;
 @Component
 public class TracingHandlerFilter extends OncePerRequestFilter {
 
+    @Autowired(required = false)
+    private SlowRequestWatchdog watchdog;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         // Make sure that the current trace id and span id are passed down to asynchronous handlers
         response.setHeader(Span.TRACE_ID_NAME, MDC.get(Span.TRACE_ID_NAME));
         response.setHeader(Span.SPAN_ID_NAME, MDC.get(Span.SPAN_ID_NAME));
 
-        filterChain.doFilter(request, response);
+        if (watchdog == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // Watch the request for as long as it is being processed on this thread
+        SlowRequestWatchdog.InFlightRequest inFlight = watchdog.begin(MDC.get(Span.TRACE_ID_NAME), request.getRequestURI());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            watchdog.end(inFlight);
+        }
     }
 
     @Override
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.validation;
+
+import io.ignitr.springboot.common.error.IgnitionFieldError;
+import rx.Observable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * Interface for validations executed by {@link GlobalValidator} that need to perform I/O, such as uniqueness checks
+ * or checks that a referenced entity exists.
+ *
+ * <p>
+ * The returned Observable emits an {@link IgnitionFieldError} for every validation error, with the field relative to
+ * the target or a <code>null</code> field for errors of the target as a whole, and completes once validation has
+ * finished.  It should not block; lookups of the same kind can be batched across targets with a
+ * {@link ReferenceCheck}.
+ * </p>
+ *
+ * @param <T> target type
+ */
+public interface AsyncValidator<T> {
+
+    /**
+     * Validates the supplied target object.
+     *
+     * @param target object to validate
+     * @return validation errors of the target
+     */
+    Observable<IgnitionFieldError> validate(T target);
+
+    /**
+     * Adapts a validation that completes a {@link CompletionStage}, such as a {@link java.util.concurrent.CompletableFuture},
+     * with the validation errors of the target.  Completing it with <code>null</code> reports no errors.
+     *
+     * @param validation function that starts the validation of a target
+     * @param <T>        target type
+     * @return async validator
+     */
+    static <T> AsyncValidator<T> fromFuture(
+            Function<? super T, ? extends CompletionStage<? extends Collection<IgnitionFieldError>>> validation) {
+        return target -> Observable.<Collection<IgnitionFieldError>>create(subscriber ->
+                validation.apply(target).whenComplete((errors, e) -> {
+                    if (e != null) {
+                        subscriber.onError(e);
+                    } else {
+                        subscriber.onNext(errors != null ? errors : Collections.<IgnitionFieldError>emptyList());
+                        subscriber.onCompleted();
+                    }
+                }))
+                .flatMapIterable(errors -> errors);
+    }
+}
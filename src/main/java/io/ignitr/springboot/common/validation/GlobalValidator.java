@@ -16,22 +16,140 @@
 
 package io.ignitr.springboot.common.validation;
 
+import io.ignitr.springboot.common.deadline.Deadline;
+import io.ignitr.springboot.common.error.CommonErrorCode;
+import io.ignitr.springboot.common.error.IgnitionFieldError;
+import io.ignitr.springboot.common.error.IgnitionRuntimeException;
+import io.ignitr.springboot.common.rx.PropagatedContext;
+import io.ignitr.springboot.common.rx.RequestContextDeclarations;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.cloud.sleuth.Tracer;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.Errors;
+import org.springframework.validation.SmartValidator;
+import rx.Observable;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Validator that is applied to all controllers within an Ignition compatible project.  This validator
  * allows users to implement the {@link ValidatorSupport} interface on POJOs they wish to have automatically
  * validated by a controller.
+ *
+ * <p>
+ * The validator of each {@link ValidatorSupport} type is obtained and autowired the first time an instance of the
+ * type is validated and is then reused for every following instance, so validators must be thread-safe and must not
+ * refer to the object they were obtained from.  Validators that may refer to the validated object are never reused:
+ * lambdas and other synthetic classes, and validators with an instance field that can hold the validated type, such as
+ * one created with <code>new FooValidator(this)</code> or an inner class of the validated type.  Validators that hold
+ * other state can opt out with {@link StatefulValidator} on the validator or on the validated type.
+ * </p>
+ *
+ * <p>
+ * Collections of {@link ValidatorSupport} objects are validated item by item with indexed field paths such as
+ * <code>[123].name</code>.  Collections larger than the <code>ignition.validation.parallel-threshold</code> property
+ * are split into chunks that are validated in parallel on a bounded fork-join pool, each into its own
+ * {@link Errors}, and the errors are merged in index order so that the result is the same as serial validation.
+ * Collections are always validated serially when the number of errors is limited.
+ * </p>
+ *
+ * <p>
+ * Validators record their errors into a lightweight {@link IgnitionErrors} rather than into the binding result of
+ * the request, so registering an error does not reflect on the validated object.  The errors are copied into the
+ * binding result once validation has finished.
+ * </p>
+ *
+ * <p>
+ * Payloads implementing {@link AsyncValidatorSupport}, and the items of collection payloads, are then validated by
+ * their {@link AsyncValidator}s if synchronous validation found no errors.  The asynchronous validators of a payload
+ * run concurrently, at most <code>ignition.validation.async-concurrency</code> at a time, and their errors are
+ * registered before the controller is invoked.  Validation fails with a 503
+ * <code>VALIDATION_TIMEOUT</code> error if they do not complete within the
+ * <code>ignition.validation.async-timeout</code> property, in milliseconds, or with a 504
+ * <code>DEADLINE_EXCEEDED</code> error if the request {@link Deadline} expires first.
+ * </p>
+ *
+ * <p>
+ * The number of errors can be limited per type with {@link MaxValidationErrors} and per endpoint with the
+ * {@link ValidationMode} hints.  Validation stops when an error beyond the limit is registered, that error is dropped
+ * and a global error with the {@link CommonErrorCode#VALIDATION_ERRORS_TRUNCATED} code is added to indicate that
+ * further errors were not reported.
+ * </p>
  */
 @Component
-public class GlobalValidator implements org.springframework.validation.Validator {
+public class GlobalValidator implements SmartValidator {
+    private static final Object[] NO_HINTS = new Object[0];
 
     @Autowired
     private AutowireCapableBeanFactory beanFactory;
 
+    @Autowired(required = false)
+    private Tracer tracer;
+
+    @Autowired
+    private RequestContextDeclarations declarations;
+
+    @Value("${ignition.validation.parallel-threshold:1000}")
+    private int parallelThreshold;
+
+    @Value("${ignition.validation.chunk-size:250}")
+    private int chunkSize;
+
+    @Value("${ignition.validation.parallelism:0}")
+    private int parallelism;
+
+    @Value("${ignition.validation.max-errors:100}")
+    private int cappedMaxErrors;
+
+    @Value("${ignition.validation.async-timeout:5000}")
+    private long asyncTimeout;
+
+    @Value("${ignition.validation.async-concurrency:16}")
+    private int asyncConcurrency;
+
+    private ForkJoinPool pool;
+
+    private final ClassValue<ValidatorHolder> validators = new ClassValue<ValidatorHolder>() {
+        @Override
+        protected ValidatorHolder computeValue(Class<?> type) {
+            return new ValidatorHolder();
+        }
+    };
+
+    @PostConstruct
+    public void init() {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("ignition.validation.chunk-size must be greater than zero");
+        }
+
+        if (parallelThreshold < 0) {
+            throw new IllegalArgumentException("ignition.validation.parallel-threshold must not be negative");
+        }
+
+        if (asyncConcurrency <= 0) {
+            throw new IllegalArgumentException("ignition.validation.async-concurrency must be greater than zero");
+        }
+
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
     @Override
     public boolean supports(Class<?> clazz) {
         return true;
@@ -39,13 +157,324 @@ public class GlobalValidator implements org.springframework.validation.Validator
 
     @Override
     public void validate(Object target, Errors errors) {
+        validate(target, errors, NO_HINTS);
+    }
+
+    @Override
+    public void validate(Object target, Errors errors, Object... validationHints) {
+        int maxErrors = getMaxErrors(target, validationHints);
+
+        IgnitionErrors collected = new IgnitionErrors(target, errors.getObjectName(), errors.getNestedPath(),
+                maxErrors);
+
+        try {
+            doValidate(target, collected);
+
+            if (!collected.hasErrors()) {
+                validateAsync(target, collected);
+            }
+        } catch (IgnitionErrors.LimitReachedException e) {
+            // Validation stops at the limit; the errors registered so far are reported
+        }
+
+        collected.copyTo(errors);
+
+        if (collected.isTruncated()) {
+            errors.reject(CommonErrorCode.VALIDATION_ERRORS_TRUNCATED.getValue(), new Object[]{maxErrors},
+                    "Validation stopped after " + maxErrors + " errors; further errors were not reported");
+        }
+    }
+
+    private void doValidate(Object target, Errors errors) {
         if (target instanceof ValidatorSupport) {
-            Validator validator = ((ValidatorSupport) target).validator();
+            Validator<Object> validator = getValidator((ValidatorSupport<?>) target);
 
             if (validator != null) {
-                beanFactory.autowireBean(validator);
                 validator.validate(target, errors);
             }
+        } else if (target instanceof Collection) {
+            validateAll("", (Collection<?>) target, errors);
+        }
+    }
+
+    /**
+     * Validates every {@link ValidatorSupport} item of a collection, registering errors with the field path of the
+     * collection followed by the index of the item, for example <code>items[123].name</code>.  Validators of payloads
+     * that hold a collection can call this method to validate the collection in parallel.
+     *
+     * @param path   field path of the collection relative to the current nested path of the errors, or an empty
+     *               string if the collection is the validated object
+     * @param items  items to validate
+     * @param errors errors collection to populate with validation errors
+     */
+    public void validateAll(String path, Collection<?> items, Errors errors) {
+        if (items.size() > parallelThreshold && errors instanceof IgnitionErrors
+                && !((IgnitionErrors) errors).hasLimit()) {
+            validateParallel(path, items, (IgnitionErrors) errors);
+            return;
+        }
+
+        int index = 0;
+        for (Object item : items) {
+            errors.pushNestedPath(path + "[" + index++ + "]");
+            try {
+                doValidate(item, errors);
+            } finally {
+                errors.popNestedPath();
+            }
+        }
+    }
+
+    /**
+     * Validates the items of a collection in chunks on the fork-join pool.  Each chunk is validated into its own
+     * {@link IgnitionErrors} rooted at the collection, and the chunk errors are merged into the errors in index
+     * order.  The request attributes, logging MDC and trace span of the calling thread are captured as a
+     * {@link PropagatedContext} and made available to the validators while they run.  The request attributes are
+     * captured as a snapshot, since the live request attributes must not be used by several threads at once.
+     */
+    private void validateParallel(String path, Collection<?> items, IgnitionErrors errors) {
+        List<?> list = items instanceof List ? (List<?>) items : new ArrayList<>(items);
+        PropagatedContext context = PropagatedContext.capture(tracer, declarations);
+
+        List<ForkJoinTask<IgnitionErrors>> chunks = new ArrayList<>();
+        for (int start = 0; start < list.size(); start += chunkSize) {
+            int from = start;
+            int to = Math.min(start + chunkSize, list.size());
+
+            chunks.add(pool.submit(() -> {
+                IgnitionErrors chunk = new IgnitionErrors(list, errors.getObjectName());
+                Runnable task = () -> {
+                    for (int i = from; i < to; i++) {
+                        chunk.pushNestedPath("[" + i + "]");
+                        try {
+                            doValidate(list.get(i), chunk);
+                        } finally {
+                            chunk.popNestedPath();
+                        }
+                    }
+                };
+
+                if (context != null) {
+                    context.runWithin(task);
+                } else {
+                    task.run();
+                }
+
+                return chunk;
+            }));
+        }
+
+        String prefix = errors.getNestedPath() + path;
+        for (ForkJoinTask<IgnitionErrors> chunk : chunks) {
+            errors.addAllErrors(prefix, chunk.join());
+        }
+    }
+
+    /**
+     * Runs the asynchronous validators of the target, or of the items of a collection target, concurrently with at
+     * most the configured number subscribed at a time and registers their errors in the order of the targets once all
+     * of them have completed.
+     *
+     * @throws IgnitionRuntimeException with a 503 status if the validators do not complete within the configured
+     *                                  timeout, or with a 504 status if the request deadline expires first
+     */
+    private void validateAsync(Object target, Errors errors) {
+        List<Observable<IgnitionFieldError>> validations = new ArrayList<>();
+        collectAsync("", target, validations);
+
+        if (validations.isEmpty()) {
+            return;
+        }
+
+        Deadline deadline = Deadline.current();
+        long remaining = deadline != null ? Math.max(1, deadline.remaining(TimeUnit.MILLISECONDS)) : 0;
+        boolean deadlineBound = deadline != null && remaining < asyncTimeout;
+
+        // An absolute timer rather than timeout(), which restarts on every error emitted by the validators
+        Observable<Object> timer = Observable.timer(deadlineBound ? remaining : asyncTimeout, TimeUnit.MILLISECONDS)
+                .flatMap(tick -> Observable.error(timeoutError(deadlineBound)));
+
+        List<IgnitionFieldError> results = Observable.from(validations)
+                .concatMapEager(validation -> validation, asyncConcurrency, asyncConcurrency)
+                .takeUntil(timer)
+                .toList()
+                .toBlocking()
+                .single();
+
+        for (IgnitionFieldError error : results) {
+            if (error.getField() != null) {
+                errors.rejectValue(error.getField(), error.getCode(), error.getMessage());
+            } else {
+                errors.reject(error.getCode(), error.getMessage());
+            }
+        }
+    }
+
+    private void collectAsync(String path, Object target, List<Observable<IgnitionFieldError>> validations) {
+        if (target instanceof AsyncValidatorSupport) {
+            AsyncValidator<Object> validator = getAsyncValidator((AsyncValidatorSupport<?>) target);
+
+            if (validator != null) {
+                Observable<IgnitionFieldError> errors = validator.validate(target);
+                validations.add(path.isEmpty() ? errors : errors.map(error -> new IgnitionFieldError(
+                        error.getField() != null ? path + "." + error.getField() : path,
+                        error.getCode(), error.getMessage())));
+            }
+        } else if (target instanceof Collection) {
+            int index = 0;
+            for (Object item : (Collection<?>) target) {
+                collectAsync(path + "[" + index++ + "]", item, validations);
+            }
+        }
+    }
+
+    private static IgnitionRuntimeException timeoutError(boolean deadlineBound) {
+        if (deadlineBound) {
+            return new IgnitionRuntimeException(HttpStatus.GATEWAY_TIMEOUT, "Request deadline exceeded",
+                    CommonErrorCode.DEADLINE_EXCEEDED);
+        }
+
+        return new IgnitionRuntimeException(HttpStatus.SERVICE_UNAVAILABLE,
+                "Validation did not complete within the allotted time", CommonErrorCode.VALIDATION_TIMEOUT);
+    }
+
+    /**
+     * Determines the maximum number of errors to report for the target from the validation hints of the endpoint
+     * and the {@link MaxValidationErrors} annotation of its type, or of the type of its first item if it is a
+     * collection.
+     *
+     * @param target object to validate
+     * @param hints  validation hints
+     * @return maximum number of errors or <code>0</code> if the number of errors is not limited
+     */
+    private int getMaxErrors(Object target, Object[] hints) {
+        int maxErrors = 0;
+
+        for (Object hint : hints) {
+            if (hint == ValidationMode.FailFast.class) {
+                maxErrors = lowest(maxErrors, 1);
+            } else if (hint == ValidationMode.Capped.class) {
+                maxErrors = lowest(maxErrors, cappedMaxErrors);
+            }
+        }
+
+        Object typed = target;
+        if (target instanceof Collection && !((Collection<?>) target).isEmpty()) {
+            typed = ((Collection<?>) target).iterator().next();
+        }
+
+        if (typed != null) {
+            MaxValidationErrors annotation = typed.getClass().getAnnotation(MaxValidationErrors.class);
+            if (annotation != null) {
+                maxErrors = lowest(maxErrors, annotation.value());
+            }
+        }
+
+        return maxErrors;
+    }
+
+    private static int lowest(int limit, int candidate) {
+        if (candidate <= 0) {
+            return limit;
+        }
+
+        return limit > 0 ? Math.min(limit, candidate) : candidate;
+    }
+
+    /**
+     * Retrieves the autowired validator for the target, reusing the validator of its type when it is not stateful.
+     *
+     * @param target object to validate
+     * @return validator or <code>null</code> if the target does not need to be validated
+     */
+    @SuppressWarnings("unchecked")
+    private Validator<Object> getValidator(ValidatorSupport<?> target) {
+        ValidatorHolder holder = validators.get(target.getClass());
+
+        Validator<Object> validator = holder.validator;
+        if (validator != null) {
+            return validator;
+        }
+
+        // The validator of a ValidatorSupport type validates instances of that type
+        validator = (Validator<Object>) target.validator();
+        if (validator == null) {
+            return null;
+        }
+
+        beanFactory.autowireBean(validator);
+
+        if (isShareable(target, validator)) {
+            holder.validator = validator;
+        }
+
+        return validator;
+    }
+
+    /**
+     * Retrieves the autowired asynchronous validator for the target, reusing the validator of its type when it is not
+     * stateful.
+     *
+     * @param target object to validate
+     * @return validator or <code>null</code> if the target does not need to be validated
+     */
+    @SuppressWarnings("unchecked")
+    private AsyncValidator<Object> getAsyncValidator(AsyncValidatorSupport<?> target) {
+        ValidatorHolder holder = validators.get(target.getClass());
+
+        AsyncValidator<Object> validator = holder.asyncValidator;
+        if (validator != null) {
+            return validator;
+        }
+
+        validator = (AsyncValidator<Object>) target.asyncValidator();
+        if (validator == null) {
+            return null;
+        }
+
+        beanFactory.autowireBean(validator);
+
+        if (isShareable(target, validator)) {
+            holder.asyncValidator = validator;
+        }
+
+        return validator;
+    }
+
+    /**
+     * @return <code>true</code> if neither the validated type nor the validator is marked as
+     * {@link StatefulValidator} and the validator cannot refer to the validated object; otherwise <code>false</code>
+     */
+    static boolean isShareable(Object target, Object validator) {
+        Class<?> validatorType = validator.getClass();
+        if (validator == target
+                || target.getClass().isAnnotationPresent(StatefulValidator.class)
+                || validatorType.isAnnotationPresent(StatefulValidator.class)) {
+            return false;
+        }
+
+        // Lambdas capture the variables they close over, including the object that created them, as hidden fields
+        if (validatorType.isSynthetic() || validatorType.getName().contains("$$Lambda")) {
+            return false;
+        }
+
+        for (Class<?> type = validatorType; type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && field.getType().isAssignableFrom(target.getClass())) {
+                    return false;
+                }
+            }
         }
+
+        return true;
+    }
+
+    /**
+     * Shared validators of a {@link ValidatorSupport} or {@link AsyncValidatorSupport} type, which stay empty for
+     * stateful validators.
+     */
+    private static class ValidatorHolder {
+        private volatile Validator<Object> validator;
+        private volatile AsyncValidator<Object> asyncValidator;
     }
 }
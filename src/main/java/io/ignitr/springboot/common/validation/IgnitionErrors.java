@@ -0,0 +1,420 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.validation;
+
+import io.ignitr.springboot.common.error.IgnitionErrorCode;
+import io.ignitr.springboot.common.error.IgnitionFieldError;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessor;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.validation.AbstractErrors;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.DefaultMessageCodesResolver;
+import org.springframework.validation.Errors;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.MessageCodesResolver;
+import org.springframework.validation.ObjectError;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Lightweight {@link Errors} implementation that {@link GlobalValidator} passes to {@link Validator}s.
+ *
+ * <p>
+ * Errors are recorded directly as {@link IgnitionFieldError}s, with the error code as the code and the default
+ * message, or the code when there is none, as the message, and keep their error arguments.  Unlike
+ * {@link BindingResult} implementations it does not access the validated object when an error is registered, so
+ * registering an error involves no reflection and rejected values are not recorded.  The message codes of the errors
+ * are resolved with a {@link DefaultMessageCodesResolver} from the object name and field, without the field type.
+ * {@link #getFieldValue(String)} and {@link #getFieldType(String)}, which are used by
+ * {@link org.springframework.validation.ValidationUtils}, read the validated object through a {@link BeanWrapper}
+ * that is only created when they are first called.  Global errors are recorded as errors without a field.  Instances
+ * are not thread-safe.
+ * </p>
+ *
+ * <p>
+ * An instance can be limited to a maximum number of errors, in which case registering an error beyond the limit
+ * drops that error, marks the errors as truncated and throws a {@link LimitReachedException} to stop the running
+ * validator.  A validator that registers exactly the maximum number of errors is therefore not reported as
+ * truncated.
+ * </p>
+ */
+public class IgnitionErrors extends AbstractErrors {
+    private static final long serialVersionUID = 1L;
+    private static final MessageCodesResolver CODES_RESOLVER = new DefaultMessageCodesResolver();
+
+    private final transient Object target;
+    private final String objectName;
+    private final String targetPath;
+    private final int maxErrors;
+    private final List<RecordedError> fieldErrors = new ArrayList<>();
+    private final List<RecordedError> globalErrors = new ArrayList<>();
+    private transient BeanWrapper targetWrapper;
+    private boolean truncated;
+
+    /**
+     * Initializes this instance of {@link IgnitionErrors}.
+     *
+     * @param target     validated object
+     * @param objectName name of the validated object
+     */
+    public IgnitionErrors(Object target, String objectName) {
+        this(target, objectName, "", 0);
+    }
+
+    /**
+     * Initializes this instance of {@link IgnitionErrors}.
+     *
+     * @param target     validated object, which is the object at the nested path
+     * @param objectName name of the validated object
+     * @param nestedPath initial nested path, to which the fields of the validated object are relative
+     * @param maxErrors  maximum number of errors, or <code>0</code> for no limit
+     */
+    public IgnitionErrors(Object target, String objectName, String nestedPath, int maxErrors) {
+        this.target = target;
+        this.objectName = objectName;
+        this.maxErrors = maxErrors;
+
+        setNestedPath(nestedPath);
+        this.targetPath = getNestedPath();
+    }
+
+    /**
+     * Registers a global error.
+     *
+     * @param errorCode      error code
+     * @param defaultMessage error message
+     */
+    public void reject(IgnitionErrorCode errorCode, String defaultMessage) {
+        reject(errorCode.getValue(), null, defaultMessage);
+    }
+
+    /**
+     * Registers an error for a field.
+     *
+     * @param field          field name, relative to the current nested path
+     * @param errorCode      error code
+     * @param defaultMessage error message
+     */
+    public void rejectValue(String field, IgnitionErrorCode errorCode, String defaultMessage) {
+        rejectValue(field, errorCode.getValue(), null, defaultMessage);
+    }
+
+    @Override
+    public String getObjectName() {
+        return objectName;
+    }
+
+    @Override
+    public void reject(String errorCode, Object[] errorArgs, String defaultMessage) {
+        checkLimit();
+        globalErrors.add(new RecordedError(null, errorCode, errorArgs,
+                defaultMessage != null ? defaultMessage : errorCode));
+    }
+
+    @Override
+    public void rejectValue(String field, String errorCode, Object[] errorArgs, String defaultMessage) {
+        if (field == null || field.isEmpty()) {
+            // Same as Spring: an empty field refers to the current nested object
+            String nestedPath = getNestedPath();
+            if (nestedPath.isEmpty()) {
+                reject(errorCode, errorArgs, defaultMessage);
+                return;
+            }
+
+            field = nestedPath.substring(0, nestedPath.length() - 1);
+        } else {
+            field = fixedField(field);
+        }
+
+        checkLimit();
+        fieldErrors.add(new RecordedError(field, errorCode, errorArgs,
+                defaultMessage != null ? defaultMessage : errorCode));
+    }
+
+    @Override
+    public void addAllErrors(Errors errors) {
+        if (errors instanceof IgnitionErrors) {
+            IgnitionErrors other = (IgnitionErrors) errors;
+            for (RecordedError error : other.fieldErrors) {
+                checkLimit();
+                fieldErrors.add(error);
+            }
+            for (RecordedError error : other.globalErrors) {
+                checkLimit();
+                globalErrors.add(error);
+            }
+        } else {
+            for (FieldError error : errors.getFieldErrors()) {
+                checkLimit();
+                fieldErrors.add(new RecordedError(error.getField(), error.getCode(), error.getArguments(),
+                        error.getDefaultMessage()));
+            }
+            for (ObjectError error : errors.getGlobalErrors()) {
+                checkLimit();
+                globalErrors.add(new RecordedError(null, error.getCode(), error.getArguments(),
+                        error.getDefaultMessage()));
+            }
+        }
+    }
+
+    /**
+     * Adds the errors of another instance, prefixing their fields with a path.
+     *
+     * @param prefix path to prepend to the fields of the errors
+     * @param errors errors to add
+     */
+    void addAllErrors(String prefix, IgnitionErrors errors) {
+        for (RecordedError error : errors.fieldErrors) {
+            fieldErrors.add(new RecordedError(prefix + error.getField(), error.getCode(), error.args,
+                    error.getMessage()));
+        }
+        globalErrors.addAll(errors.globalErrors);
+    }
+
+    /**
+     * @return field errors in the order they were registered
+     */
+    public List<IgnitionFieldError> getIgnitionFieldErrors() {
+        return Collections.<IgnitionFieldError>unmodifiableList(fieldErrors);
+    }
+
+    /**
+     * @return global errors in the order they were registered
+     */
+    public List<IgnitionFieldError> getIgnitionGlobalErrors() {
+        return Collections.<IgnitionFieldError>unmodifiableList(globalErrors);
+    }
+
+    /**
+     * @return <code>true</code> if the number of errors is limited; otherwise <code>false</code>
+     */
+    boolean hasLimit() {
+        return maxErrors > 0;
+    }
+
+    /**
+     * @return <code>true</code> if more than the maximum number of errors were registered and the errors beyond the
+     * maximum were dropped; otherwise <code>false</code>
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Copies the errors into Spring errors, such as the {@link BindingResult} of a request.  Errors are added
+     * directly to binding results, with message codes resolved by a {@link DefaultMessageCodesResolver} for the
+     * object name of the binding result, so that the validated object is not accessed.
+     *
+     * @param errors errors to copy into
+     */
+    public void copyTo(Errors errors) {
+        if (errors instanceof BindingResult) {
+            BindingResult result = (BindingResult) errors;
+
+            for (RecordedError error : globalErrors) {
+                result.addError(objectError(result.getObjectName(), error));
+            }
+            for (RecordedError error : fieldErrors) {
+                result.addError(fieldError(result.getObjectName(), error));
+            }
+        } else {
+            String nestedPath = errors.getNestedPath();
+            errors.setNestedPath("");
+
+            for (RecordedError error : globalErrors) {
+                errors.reject(error.getCode(), error.args, error.getMessage());
+            }
+            for (RecordedError error : fieldErrors) {
+                errors.rejectValue(error.getField(), error.getCode(), error.args, error.getMessage());
+            }
+
+            errors.setNestedPath(nestedPath);
+        }
+    }
+
+    @Override
+    public int getErrorCount() {
+        return fieldErrors.size() + globalErrors.size();
+    }
+
+    @Override
+    public boolean hasErrors() {
+        return !fieldErrors.isEmpty() || !globalErrors.isEmpty();
+    }
+
+    @Override
+    public int getGlobalErrorCount() {
+        return globalErrors.size();
+    }
+
+    @Override
+    public int getFieldErrorCount() {
+        return fieldErrors.size();
+    }
+
+    @Override
+    public List<ObjectError> getGlobalErrors() {
+        List<ObjectError> errors = new ArrayList<>(globalErrors.size());
+        for (RecordedError error : globalErrors) {
+            errors.add(objectError(objectName, error));
+        }
+
+        return errors;
+    }
+
+    @Override
+    public List<FieldError> getFieldErrors() {
+        List<FieldError> errors = new ArrayList<>(fieldErrors.size());
+        for (RecordedError error : fieldErrors) {
+            errors.add(fieldError(objectName, error));
+        }
+
+        return errors;
+    }
+
+    @Override
+    public Object getFieldValue(String field) {
+        String path = relativePath(field);
+        if (path == null) {
+            return null;
+        }
+
+        if (path.startsWith(PropertyAccessor.PROPERTY_KEY_PREFIX)) {
+            // Indexed paths such as [3].name refer to the items of a validated collection
+            int end = path.indexOf(PropertyAccessor.PROPERTY_KEY_SUFFIX);
+            Object item = item(Integer.parseInt(path.substring(1, end)));
+            String rest = path.substring(end + 1);
+
+            if (rest.isEmpty() || item == null) {
+                return item;
+            }
+
+            return PropertyAccessorFactory.forBeanPropertyAccess(item)
+                    .getPropertyValue(rest.substring(rest.startsWith(NESTED_PATH_SEPARATOR) ? 1 : 0));
+        }
+
+        return path.isEmpty() ? target : wrapper().getPropertyValue(path);
+    }
+
+    @Override
+    public Class<?> getFieldType(String field) {
+        String path = relativePath(field);
+        if (path != null && !path.isEmpty() && !path.startsWith(PropertyAccessor.PROPERTY_KEY_PREFIX)) {
+            return wrapper().getPropertyType(path);
+        }
+
+        return super.getFieldType(field);
+    }
+
+    /**
+     * @return path of the field relative to the validated object, or <code>null</code> if there is no validated
+     * object or the field lies outside of it
+     */
+    private String relativePath(String field) {
+        if (target == null) {
+            return null;
+        }
+
+        String path = fixedField(field);
+        if (!path.startsWith(targetPath)) {
+            return null;
+        }
+
+        return path.substring(targetPath.length());
+    }
+
+    private Object item(int index) {
+        if (target instanceof List) {
+            return ((List<?>) target).get(index);
+        }
+
+        if (target instanceof Collection) {
+            Iterator<?> it = ((Collection<?>) target).iterator();
+            for (int i = 0; i < index; i++) {
+                it.next();
+            }
+
+            return it.next();
+        }
+
+        return target.getClass().isArray() ? Array.get(target, index) : null;
+    }
+
+    private BeanWrapper wrapper() {
+        if (targetWrapper == null) {
+            targetWrapper = PropertyAccessorFactory.forBeanPropertyAccess(target);
+        }
+
+        return targetWrapper;
+    }
+
+    /**
+     * Called before an error is registered, so that an error beyond the maximum is dropped rather than recorded.
+     */
+    private void checkLimit() {
+        if (maxErrors > 0 && getErrorCount() >= maxErrors) {
+            truncated = true;
+            throw LimitReachedException.INSTANCE;
+        }
+    }
+
+    private static ObjectError objectError(String objectName, RecordedError error) {
+        String[] codes = error.getCode() != null
+                ? CODES_RESOLVER.resolveMessageCodes(error.getCode(), objectName)
+                : null;
+        return new ObjectError(objectName, codes, error.args, error.getMessage());
+    }
+
+    private static FieldError fieldError(String objectName, RecordedError error) {
+        String[] codes = error.getCode() != null
+                ? CODES_RESOLVER.resolveMessageCodes(error.getCode(), objectName, error.getField(), null)
+                : null;
+        return new FieldError(objectName, error.getField(), null, false, codes, error.args, error.getMessage());
+    }
+
+    /**
+     * Registered error, which also keeps the arguments of its error code for resolving its message.
+     */
+    private static final class RecordedError extends IgnitionFieldError {
+        private final Object[] args;
+
+        RecordedError(String field, String code, Object[] args, String message) {
+            super(field, code, message);
+            this.args = args;
+        }
+    }
+
+    /**
+     * Signals that an error beyond the maximum number of errors was registered.  Thrown without a stack trace since it
+     * is only used to unwind the running validator.
+     */
+    static final class LimitReachedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        static final LimitReachedException INSTANCE = new LimitReachedException();
+
+        private LimitReachedException() {
+            super("The maximum number of validation errors has been reached", null, false, false);
+        }
+    }
+}
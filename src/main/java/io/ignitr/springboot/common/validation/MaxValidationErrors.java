@@ -0,0 +1,45 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.validation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Limits the number of validation errors reported for a {@link ValidatorSupport} type.  Validation stops when an
+ * error beyond the limit is registered and the error response states that the list of errors was truncated.  A
+ * limit of <code>1</code> reports only the first error.
+ *
+ * <p>
+ * Errors are counted in the order they are registered, so collections of a limited type, and collections validated
+ * in fail-fast or capped {@link ValidationMode}, are always validated serially, regardless of the
+ * <code>ignition.validation.parallel-threshold</code> property.
+ * </p>
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface MaxValidationErrors {
+
+    /**
+     * @return maximum number of errors to report
+     */
+    int value();
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.validation;
+
+import io.ignitr.springboot.common.error.IgnitionFieldError;
+import io.ignitr.springboot.common.rx.BatchLoader;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import rx.Observable;
+import rx.functions.Func1;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Checks that keys reference existing entities of one kind for {@link AsyncValidator}s, batching the lookups made
+ * while validating concurrently with a {@link BatchLoader}.  Since {@link GlobalValidator} runs the asynchronous
+ * validators of a payload concurrently, the references of all items of a collection payload are typically checked
+ * with a few bulk lookups.  Declaring an instance as a bean publishes the batch metrics of its loader.
+ *
+ * <pre>
+ * ReferenceCheck&lt;Long&gt; customers = ReferenceCheck.of("customer", ids -&gt; customerRepository.findExistingIds(ids));
+ *
+ * &#64;Override
+ * public AsyncValidator&lt;Order&gt; asyncValidator() {
+ *     return order -&gt; customers.check("customerId", order.getCustomerId());
+ * }
+ * </pre>
+ *
+ * @param <K> key type
+ */
+public class ReferenceCheck<K> implements PublicMetrics {
+    private final String kind;
+    private final BatchLoader<K, Boolean> loader;
+
+    private ReferenceCheck(String kind, BatchLoader.Builder<K, Boolean> builder,
+                           Func1<Collection<K>, Observable<? extends Collection<K>>> existingKeys) {
+        this.kind = kind;
+        this.loader = builder.build(keys -> existingKeys.call(keys).map(existing -> {
+            Set<K> found = new HashSet<>(existing);
+
+            Map<K, Boolean> exists = new LinkedHashMap<>();
+            for (K key : keys) {
+                exists.put(key, found.contains(key));
+            }
+
+            return exists;
+        }));
+    }
+
+    /**
+     * Creates a reference check with the default batching of {@link BatchLoader}.
+     *
+     * @param kind         kind of the referenced entities, used in error messages and as the loader name
+     * @param existingKeys function that emits the keys of a batch that reference existing entities
+     * @param <K>          key type
+     * @return reference check
+     */
+    public static <K> ReferenceCheck<K> of(String kind,
+                                           Func1<Collection<K>, Observable<? extends Collection<K>>> existingKeys) {
+        return new ReferenceCheck<>(kind, BatchLoader.builder(kind), existingKeys);
+    }
+
+    /**
+     * Creates a reference check with custom batching.
+     *
+     * @param kind         kind of the referenced entities, used in error messages
+     * @param builder      configured builder of the underlying loader
+     * @param existingKeys function that emits the keys of a batch that reference existing entities
+     * @param <K>          key type
+     * @return reference check
+     */
+    public static <K> ReferenceCheck<K> of(String kind, BatchLoader.Builder<K, Boolean> builder,
+                                           Func1<Collection<K>, Observable<? extends Collection<K>>> existingKeys) {
+        return new ReferenceCheck<>(kind, builder, existingKeys);
+    }
+
+    /**
+     * Checks that a key references an existing entity.  A <code>null</code> key is not checked.
+     *
+     * @param field field holding the key, relative to the validated object
+     * @param key   key to check
+     * @return an error with the {@link ValidationErrorCode#REFERENCE_NOT_FOUND} code if the entity does not exist
+     */
+    public Observable<IgnitionFieldError> check(String field, K key) {
+        if (key == null) {
+            return Observable.empty();
+        }
+
+        return loader.load(key)
+                .filter(exists -> !exists)
+                .map(exists -> new IgnitionFieldError(field, ValidationErrorCode.REFERENCE_NOT_FOUND.getValue(),
+                        "must reference an existing " + kind));
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        return loader.metrics();
+    }
+}
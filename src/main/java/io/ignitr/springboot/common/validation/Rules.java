@@ -0,0 +1,423 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.validation;
+
+import io.ignitr.springboot.common.error.IgnitionErrorCode;
+import org.springframework.beans.BeanUtils;
+import org.springframework.validation.Errors;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * {@link Validator} built from declarative rules on the fields of the target.
+ *
+ * <p>
+ * The rules are compiled once by {@link Builder#build()} into flat arrays of fields and checks, with field values read
+ * through the supplied accessor functions or through {@link MethodHandle}s of the bean getters.  Validating a target
+ * therefore involves no reflection, and allocates nothing unless an error is registered apart from boxing the values
+ * of primitive fields, which is unavoidable since every value is checked as an object.  The checks of a field run
+ * in the order they were declared and stop at the first check that fails, so each field reports at most one error.
+ * Apart from {@link FieldRules#notNull()}, {@link FieldRules#notBlank()} and {@link FieldRules#notEmpty()}, checks
+ * pass when the value is <code>null</code>.  Errors are registered with the codes of {@link ValidationErrorCode}
+ * unless a custom check supplies its own {@link IgnitionErrorCode}.
+ * </p>
+ *
+ * <p>
+ * Instances are immutable and thread-safe, so a {@link ValidatorSupport} type can hold its rules in a constant.
+ * </p>
+ *
+ * <pre>
+ * private static final Rules&lt;Customer&gt; RULES = Rules.of(Customer.class)
+ *         .field("name", Customer::getName).notBlank().maxLength(64)
+ *         .field("email").notNull().matches(".+@.+")
+ *         .field("age", Customer::getAge).min(18).max(150)
+ *         .build();
+ *
+ * &#64;Override
+ * public Validator validator() {
+ *     return RULES;
+ * }
+ * </pre>
+ *
+ * @param <T> target type
+ */
+public final class Rules<T> implements Validator<T> {
+    private final String[] fields;
+    private final Function<Object, Object>[] accessors;
+    private final Check[][] checks;
+
+    private Rules(String[] fields, Function<Object, Object>[] accessors, Check[][] checks) {
+        this.fields = fields;
+        this.accessors = accessors;
+        this.checks = checks;
+    }
+
+    /**
+     * Starts building the rules for a type.
+     *
+     * @param type target type
+     * @param <T>  target type
+     * @return rules builder
+     */
+    public static <T> Builder<T> of(Class<T> type) {
+        return new Builder<>(type);
+    }
+
+    @Override
+    public void validate(T target, Errors errors) {
+        if (target == null) {
+            return;
+        }
+
+        for (int i = 0; i < fields.length; i++) {
+            Object value = accessors[i].apply(target);
+
+            for (Check check : checks[i]) {
+                if (!check.test(value)) {
+                    errors.rejectValue(fields[i], check.errorCode.getValue(), check.message);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Builder for {@link Rules}.
+     *
+     * @param <T> target type
+     */
+    public static final class Builder<T> {
+        private final Class<T> type;
+        private final List<FieldRules<T, ?>> fields = new ArrayList<>();
+
+        private Builder(Class<T> type) {
+            this.type = type;
+        }
+
+        /**
+         * Declares rules for a field whose value is read with an accessor function.
+         *
+         * @param name     field name under which errors are registered
+         * @param accessor function that reads the value of the field
+         * @param <V>      field type
+         * @return rules of the field
+         */
+        @SuppressWarnings("unchecked")
+        public <V> FieldRules<T, V> field(String name, Function<? super T, ? extends V> accessor) {
+            FieldRules<T, V> field = new FieldRules<>(this, name, (Function<Object, Object>) accessor);
+            fields.add(field);
+            return field;
+        }
+
+        /**
+         * Declares rules for a bean property, whose value is read with a {@link MethodHandle} of its getter.
+         *
+         * @param name property name, under which errors are registered
+         * @return rules of the field
+         * @throws IllegalArgumentException if the type has no public getter for the property
+         */
+        public FieldRules<T, Object> field(String name) {
+            MethodHandle getter = getter(name);
+
+            FieldRules<T, Object> field = new FieldRules<>(this, name, target -> {
+                try {
+                    return (Object) getter.invokeExact(target);
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new IllegalStateException("Unable to read property '" + name + "' of " + type.getName(), t);
+                }
+            });
+            fields.add(field);
+            return field;
+        }
+
+        /**
+         * Compiles the declared rules.
+         *
+         * @return validator that applies the rules
+         */
+        public Rules<T> build() {
+            String[] names = new String[fields.size()];
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            Function<Object, Object>[] accessors = new Function[fields.size()];
+            Check[][] checks = new Check[fields.size()][];
+
+            for (int i = 0; i < fields.size(); i++) {
+                FieldRules<T, ?> field = fields.get(i);
+                names[i] = field.name;
+                accessors[i] = field.accessor;
+                checks[i] = field.checks.toArray(new Check[field.checks.size()]);
+            }
+
+            return new Rules<>(names, accessors, checks);
+        }
+
+        private MethodHandle getter(String name) {
+            PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(type, name);
+            if (descriptor == null || descriptor.getReadMethod() == null) {
+                throw new IllegalArgumentException("No readable property '" + name + "' on " + type.getName());
+            }
+
+            try {
+                return MethodHandles.publicLookup()
+                        .unreflect(descriptor.getReadMethod())
+                        .asType(MethodType.methodType(Object.class, Object.class));
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Property '" + name + "' on " + type.getName() + " is not public", e);
+            }
+        }
+    }
+
+    /**
+     * Checks of a single field.  Length checks apply to strings, collections, maps and arrays, and range checks to
+     * numbers; values of other types pass them.
+     *
+     * @param <T> target type
+     * @param <V> field type
+     */
+    public static final class FieldRules<T, V> {
+        private final Builder<T> builder;
+        private final String name;
+        private final Function<Object, Object> accessor;
+        private final List<Check> checks = new ArrayList<>();
+
+        private FieldRules(Builder<T> builder, String name, Function<Object, Object> accessor) {
+            this.builder = builder;
+            this.name = name;
+            this.accessor = accessor;
+        }
+
+        /**
+         * Requires the value to be non-null.
+         *
+         * @return this field
+         */
+        public FieldRules<T, V> notNull() {
+            return add(value -> value != null, ValidationErrorCode.NOT_NULL, "must not be null");
+        }
+
+        /**
+         * Requires the value to be a string that contains at least one non-whitespace character.  Values of other
+         * types fail this check.
+         *
+         * @return this field
+         */
+        public FieldRules<T, V> notBlank() {
+            return add(Rules::isNotBlank, ValidationErrorCode.NOT_BLANK, "must not be blank");
+        }
+
+        /**
+         * Requires the value to be non-null with a length greater than zero.
+         *
+         * @return this field
+         */
+        public FieldRules<T, V> notEmpty() {
+            return add(value -> value != null && length(value) != 0, ValidationErrorCode.NOT_EMPTY,
+                    "must not be empty");
+        }
+
+        /**
+         * Requires the length of the value to be at least the given minimum.
+         *
+         * @param min minimum length
+         * @return this field
+         */
+        public FieldRules<T, V> minLength(int min) {
+            return add(value -> value == null || length(value) < 0 || length(value) >= min,
+                    ValidationErrorCode.TOO_SHORT, "must have a length of at least " + min);
+        }
+
+        /**
+         * Requires the length of the value to be at most the given maximum.
+         *
+         * @param max maximum length
+         * @return this field
+         */
+        public FieldRules<T, V> maxLength(int max) {
+            return add(value -> value == null || length(value) <= max,
+                    ValidationErrorCode.TOO_LONG, "must have a length of at most " + max);
+        }
+
+        /**
+         * Requires the value to be a string that matches a regular expression in its entirety.
+         *
+         * @param regex regular expression
+         * @return this field
+         */
+        public FieldRules<T, V> matches(String regex) {
+            Pattern pattern = Pattern.compile(regex);
+            return add(value -> !(value instanceof CharSequence) || pattern.matcher((CharSequence) value).matches(),
+                    ValidationErrorCode.PATTERN_MISMATCH, "must match '" + regex + "'");
+        }
+
+        /**
+         * Requires the value to be a number greater than or equal to the given minimum.
+         *
+         * @param min minimum value
+         * @return this field
+         */
+        public FieldRules<T, V> min(long min) {
+            return add(value -> !(value instanceof Number) || compare((Number) value, min) >= 0,
+                    ValidationErrorCode.TOO_SMALL, "must be greater than or equal to " + min);
+        }
+
+        /**
+         * Requires the value to be a number less than or equal to the given maximum.
+         *
+         * @param max maximum value
+         * @return this field
+         */
+        public FieldRules<T, V> max(long max) {
+            return add(value -> !(value instanceof Number) || compare((Number) value, max) <= 0,
+                    ValidationErrorCode.TOO_LARGE, "must be less than or equal to " + max);
+        }
+
+        /**
+         * Requires the value to satisfy a custom predicate, which is not invoked for <code>null</code> values.
+         *
+         * @param predicate predicate that returns <code>true</code> for valid values
+         * @param errorCode error code to register when the predicate fails
+         * @param message   error message to register when the predicate fails
+         * @return this field
+         */
+        @SuppressWarnings("unchecked")
+        public FieldRules<T, V> check(Predicate<? super V> predicate, IgnitionErrorCode errorCode, String message) {
+            return add(value -> value == null || ((Predicate<Object>) predicate).test(value), errorCode, message);
+        }
+
+        /**
+         * Requires the value to satisfy a custom predicate, registering {@link ValidationErrorCode#INVALID_VALUE} when
+         * it does not.  The predicate is not invoked for <code>null</code> values.
+         *
+         * @param predicate predicate that returns <code>true</code> for valid values
+         * @param message   error message to register when the predicate fails
+         * @return this field
+         */
+        public FieldRules<T, V> check(Predicate<? super V> predicate, String message) {
+            return check(predicate, ValidationErrorCode.INVALID_VALUE, message);
+        }
+
+        /**
+         * Declares rules for another field.
+         *
+         * @see Builder#field(String, Function)
+         */
+        public <U> FieldRules<T, U> field(String name, Function<? super T, ? extends U> accessor) {
+            return builder.field(name, accessor);
+        }
+
+        /**
+         * Declares rules for another bean property.
+         *
+         * @see Builder#field(String)
+         */
+        public FieldRules<T, Object> field(String name) {
+            return builder.field(name);
+        }
+
+        /**
+         * Compiles the declared rules.
+         *
+         * @see Builder#build()
+         */
+        public Rules<T> build() {
+            return builder.build();
+        }
+
+        private FieldRules<T, V> add(Predicate<Object> predicate, IgnitionErrorCode errorCode, String message) {
+            checks.add(new Check(predicate, errorCode, message));
+            return this;
+        }
+    }
+
+    /**
+     * Compiled check with the error it registers when it fails.
+     */
+    private static final class Check {
+        private final Predicate<Object> predicate;
+        private final IgnitionErrorCode errorCode;
+        private final String message;
+
+        Check(Predicate<Object> predicate, IgnitionErrorCode errorCode, String message) {
+            this.predicate = predicate;
+            this.errorCode = errorCode;
+            this.message = message;
+        }
+
+        boolean test(Object value) {
+            return predicate.test(value);
+        }
+    }
+
+    private static boolean isNotBlank(Object value) {
+        if (!(value instanceof CharSequence)) {
+            return false;
+        }
+
+        CharSequence chars = (CharSequence) value;
+        for (int i = 0; i < chars.length(); i++) {
+            if (!Character.isWhitespace(chars.charAt(i))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return length of a string, collection, map or array, or <code>-1</code> for values of other types
+     */
+    private static int length(Object value) {
+        if (value instanceof CharSequence) {
+            return ((CharSequence) value).length();
+        } else if (value instanceof Collection) {
+            return ((Collection<?>) value).size();
+        } else if (value instanceof Map) {
+            return ((Map<?, ?>) value).size();
+        } else if (value.getClass().isArray()) {
+            return Array.getLength(value);
+        }
+
+        return -1;
+    }
+
+    private static int compare(Number value, long bound) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return Long.compare(value.longValue(), bound);
+        } else if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).compareTo(BigDecimal.valueOf(bound));
+        } else if (value instanceof BigInteger) {
+            return ((BigInteger) value).compareTo(BigInteger.valueOf(bound));
+        }
+
+        return Double.compare(value.doubleValue(), bound);
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.validation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@link Validator} or {@link AsyncValidator} that holds state, or a {@link ValidatorSupport} or
+ * {@link AsyncValidatorSupport} type whose validators do, so that they are not shared between requests.
+ *
+ * <p>
+ * {@link GlobalValidator} normally resolves and autowires the validator of each {@link ValidatorSupport} type once
+ * and reuses it for every request, so validators must be thread-safe.  Validators annotated with this annotation,
+ * and the validators of types annotated with it, are instead obtained from {@link ValidatorSupport#validator()} and
+ * autowired for every validation.
+ * </p>
+ *
+ * <p>
+ * Validators that are lambdas or other synthetic classes, or that have an instance field that can hold the validated
+ * type, such as a validator created with <code>new FooValidator(this)</code>, are never shared since they may refer to
+ * the validated object.  Annotate the validated type rather than the validator when a validator refers to the
+ * validated object in some other way, such as through a collection or a holder, or cannot be annotated.  Sharing
+ * such a validator would validate every later object against the first one.
+ * </p>
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StatefulValidator {
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.validation;
+
+import io.ignitr.springboot.common.error.IgnitionErrorCode;
+
+/**
+ * Enumeration of the error codes registered by the checks of {@link Rules} and by {@link ReferenceCheck}.
+ */
+public enum ValidationErrorCode implements IgnitionErrorCode {
+    NOT_NULL("NOT_NULL"),
+    NOT_BLANK("NOT_BLANK"),
+    NOT_EMPTY("NOT_EMPTY"),
+    TOO_SHORT("TOO_SHORT"),
+    TOO_LONG("TOO_LONG"),
+    PATTERN_MISMATCH("PATTERN_MISMATCH"),
+    TOO_SMALL("TOO_SMALL"),
+    TOO_LARGE("TOO_LARGE"),
+    INVALID_VALUE("INVALID_VALUE"),
+    REFERENCE_NOT_FOUND("REFERENCE_NOT_FOUND");
+
+    private final String value;
+
+    ValidationErrorCode(final String value) {
+        this.value = value;
+    }
+
+    @Override
+    public String getValue() {
+        return value;
+    }
+}
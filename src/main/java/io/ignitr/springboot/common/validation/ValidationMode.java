@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.validation;
+
+/**
+ * Validation hints that select how many errors {@link GlobalValidator} reports for an endpoint.  The hints are
+ * passed with {@link org.springframework.validation.annotation.Validated} on the request body:
+ *
+ * <pre>
+ * public ResponseEntity&lt;?&gt; create(&#64;Validated(ValidationMode.FailFast.class) &#64;RequestBody Order order)
+ * </pre>
+ *
+ * <p>
+ * Spring passes the same hints as validation groups to JSR-303 bean validation, so endpoints that also rely on bean
+ * validation constraints need to include {@link javax.validation.groups.Default} in the hints.
+ * </p>
+ */
+public final class ValidationMode {
+
+    private ValidationMode() {
+        // Hint holder
+    }
+
+    /**
+     * Reports only the first error, stopping validation when a second error is registered.  Collections are validated
+     * serially in this mode.
+     */
+    public interface FailFast {
+    }
+
+    /**
+     * Stops validation once more errors than set by the <code>ignition.validation.max-errors</code> property are
+     * registered.  Collections are validated serially in this mode.
+     */
+    public interface Capped {
+    }
+}
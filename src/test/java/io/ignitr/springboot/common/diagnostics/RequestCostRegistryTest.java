@@ -0,0 +1,42 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.diagnostics;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class RequestCostRegistryTest {
+
+    @Test
+    public void ranksWorstRequestsByTheRequestedMetric() {
+        RequestCostRegistry registry = new RequestCostRegistry(1);
+        registry.record("GET /orders", "cpu-heavy", TimeUnit.MILLISECONDS.toNanos(50), 1_000);
+        registry.record("GET /orders", "allocation-heavy", TimeUnit.MILLISECONDS.toNanos(1), 50_000_000);
+        registry.record("GET /orders", "cheap", TimeUnit.MILLISECONDS.toNanos(1), 1_000);
+
+        List<RequestCostRegistry.HandlerCostSummary> byCpu = registry.getTopByCpuTime(10);
+        assertEquals("cpu-heavy", byCpu.get(0).getWorstRequests().get(0).getRequestId());
+
+        List<RequestCostRegistry.HandlerCostSummary> byAllocation = registry.getTopByAllocatedBytes(10);
+        assertEquals("allocation-heavy", byAllocation.get(0).getWorstRequests().get(0).getRequestId());
+        assertEquals(3, byAllocation.get(0).getCount());
+    }
+}
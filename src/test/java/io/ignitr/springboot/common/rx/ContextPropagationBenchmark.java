@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import org.springframework.web.context.request.RequestContextHolder;
+import rx.Observable;
+import rx.Scheduler;
+import rx.plugins.RxJavaPlugins;
+import rx.schedulers.Schedulers;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Compares the overhead of propagating the request context with the {@link RequestContextSchedulersHook} against
+ * the per-Observable {@link RequestContextStashOperator}.  Run with the test classpath:
+ *
+ * <pre>
+ * java -cp {test classpath} io.ignitr.springboot.common.rx.ContextPropagationBenchmark
+ * </pre>
+ *
+ * <p>
+ * Two workloads are measured: a stream of items that hops threads with <code>observeOn</code>, where the operator
+ * binds the context for every item and the hook once per drain of the observeOn queue, and individually scheduled
+ * tasks, where the hook captures and binds the context for every task.
+ * </p>
+ */
+public final class ContextPropagationBenchmark {
+    private static final int ITEMS = 2_000_000;
+    private static final int TASKS = 200_000;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 10;
+
+    private ContextPropagationBenchmark() {
+        // Main class
+    }
+
+    public static void main(String[] args) throws Exception {
+        RequestContextHolder.setRequestAttributes(new TestRequestAttributes());
+        Scheduler scheduler = Schedulers.computation();
+
+        report("stream, no propagation", ITEMS, () -> stream(scheduler, false));
+        report("stream, stash operator", ITEMS, () -> stream(scheduler, true));
+        report("tasks, no propagation", TASKS, () -> tasks(scheduler));
+
+        RxJavaPlugins.getInstance().reset();
+        RxJavaPlugins.getInstance().registerSchedulersHook(new RequestContextSchedulersHook(null,
+                RequestContextDeclarations.DEFAULT, null));
+
+        // Workers keep the hook they were created with, so the computation scheduler has to be recreated
+        Schedulers.reset();
+        Scheduler hooked = Schedulers.computation();
+
+        report("stream, schedulers hook", ITEMS, () -> stream(hooked, false));
+        report("tasks, schedulers hook", TASKS, () -> tasks(hooked));
+    }
+
+    private static long stream(Scheduler scheduler, boolean stash) {
+        Observable<Integer> observable = Observable.range(0, ITEMS).observeOn(scheduler);
+        if (stash) {
+            observable = observable.lift(new RequestContextStashOperator<>());
+        }
+
+        long start = System.nanoTime();
+        observable.toBlocking().last();
+        return System.nanoTime() - start;
+    }
+
+    private static long tasks(Scheduler scheduler) {
+        CountDownLatch latch = new CountDownLatch(TASKS);
+        Scheduler.Worker worker = scheduler.createWorker();
+
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < TASKS; i++) {
+                worker.schedule(latch::countDown);
+            }
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            worker.unsubscribe();
+        }
+
+        return System.nanoTime() - start;
+    }
+
+    private static void report(String name, int operations, LongSupplier round) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            round.getAsLong();
+        }
+
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long elapsed = round.getAsLong();
+            best = Math.min(best, elapsed);
+            total += elapsed;
+        }
+
+        System.out.printf("%-26s best %6.1f ns/op, mean %6.1f ns/op%n", name,
+                (double) best / operations, (double) total / ROUNDS / operations);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import io.ignitr.springboot.common.deadline.Deadline;
+import io.ignitr.springboot.common.error.CommonErrorCode;
+import io.ignitr.springboot.common.error.IgnitionRuntimeException;
+import org.junit.Test;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DeadlineTransformerTest {
+
+    @Test
+    public void failsStreamThatKeepsEmittingPastTheDeadline() throws Exception {
+        TestSubscriber<Long> subscriber = new TestSubscriber<>();
+        CountDownLatch unsubscribed = new CountDownLatch(1);
+
+        Observable.interval(5, TimeUnit.MILLISECONDS)
+                .doOnUnsubscribe(unsubscribed::countDown)
+                .compose(new DeadlineTransformer<>(Deadline.after(100, TimeUnit.MILLISECONDS)))
+                .subscribe(subscriber);
+
+        subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+        subscriber.assertError(IgnitionRuntimeException.class);
+        assertEquals(CommonErrorCode.DEADLINE_EXCEEDED,
+                ((IgnitionRuntimeException) subscriber.getOnErrorEvents().get(0)).getErrorCode());
+        // The source is unsubscribed right after the error has been delivered
+        assertTrue(unsubscribed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void completesStreamThatFinishesBeforeTheDeadline() {
+        TestSubscriber<Integer> subscriber = new TestSubscriber<>();
+
+        Observable.just(1, 2, 3)
+                .compose(new DeadlineTransformer<>(Deadline.after(1, TimeUnit.MINUTES)))
+                .subscribe(subscriber);
+
+        subscriber.assertValues(1, 2, 3);
+        subscriber.assertCompleted();
+    }
+
+    @Test
+    public void failsImmediatelyWhenTheDeadlineHasExpired() {
+        TestSubscriber<Integer> subscriber = new TestSubscriber<>();
+
+        Observable.just(1)
+                .compose(new DeadlineTransformer<>(Deadline.after(0, TimeUnit.MILLISECONDS)))
+                .subscribe(subscriber);
+
+        subscriber.assertNoValues();
+        subscriber.assertError(IgnitionRuntimeException.class);
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import org.junit.Test;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FanOutTest {
+
+    @Test
+    public void timesOutCallThatKeepsEmittingPastTheTimeout() {
+        TestSubscriber<FanOutResult<Long>> subscriber = new TestSubscriber<>();
+
+        // Each item arrives well within the timeout but the call as a whole never finishes
+        FanOut.<Long>builder()
+                .timeout(50, TimeUnit.MILLISECONDS)
+                .call("interval", Observable.interval(5, TimeUnit.MILLISECONDS))
+                .call("just", Observable.just(1L))
+                .execute()
+                .subscribe(subscriber);
+
+        subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+        subscriber.assertNoErrors();
+
+        FanOutResult<Long> result = subscriber.getOnNextEvents().get(0);
+        assertEquals(Long.valueOf(1), result.getSuccesses().get("just"));
+        assertTrue(result.getFailures().get("interval") instanceof TimeoutException);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.Metric;
+import rx.Observable;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ObservableCacheTest {
+
+    @Test
+    public void schedulesOneRefreshForConcurrentStaleHits() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        CountingScheduler scheduler = new CountingScheduler(Schedulers.io());
+
+        ObservableCache<String, Integer> cache = ObservableCache.<String, Integer>builder("test")
+                .timeToLive(1, TimeUnit.MILLISECONDS)
+                .staleWhileRevalidate(1, TimeUnit.MINUTES)
+                .refreshScheduler(scheduler)
+                .build(key -> Observable.fromCallable(() -> {
+                    int load = loads.incrementAndGet();
+                    if (load > 1) {
+                        // Every reload is slow so that all of the stale hits arrive while it is running
+                        release.await(5, TimeUnit.SECONDS);
+                    }
+
+                    return load;
+                }));
+
+        assertEquals(Integer.valueOf(1), cache.get("key").toBlocking().single());
+        Thread.sleep(5);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> hits = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                hits.add(executor.submit(() -> cache.get("key").toBlocking().single()));
+            }
+            for (Future<Integer> hit : hits) {
+                // Stale hits are served the cached entry without waiting for the reload
+                assertEquals(Integer.valueOf(1), hit.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, scheduler.workers.get());
+        release.countDown();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (metric(cache, "cache.test.refreshes") < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+
+        assertEquals(2, loads.get());
+        assertEquals(1, metric(cache, "cache.test.refreshes"));
+        assertTrue(metric(cache, "cache.test.stale") >= 200);
+    }
+
+    private static long metric(ObservableCache<?, ?> cache, String name) {
+        for (Metric<?> metric : cache.metrics()) {
+            if (metric.getName().equals(name)) {
+                return metric.getValue().longValue();
+            }
+        }
+
+        throw new IllegalArgumentException(name);
+    }
+
+    /**
+     * Scheduler that counts the workers created from it.
+     */
+    private static class CountingScheduler extends Scheduler {
+        private final Scheduler delegate;
+        private final AtomicInteger workers = new AtomicInteger();
+
+        CountingScheduler(Scheduler delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Worker createWorker() {
+            workers.incrementAndGet();
+            return delegate.createWorker();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import rx.Scheduler;
+import rx.plugins.RxJavaPlugins;
+import rx.schedulers.Schedulers;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertTrue;
+
+public class RequestContextSchedulersHookConfigurationTest {
+
+    @After
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        RxJavaPlugins.getInstance().reset();
+        Schedulers.reset();
+    }
+
+    @Test
+    public void appliesHookToComputationSchedulerCreatedBeforeRegistration() throws Exception {
+        // Creates the computation workers before the hook is registered, as any bean using Rx at startup would
+        run(Schedulers.computation(), () -> {
+        });
+
+        RequestContextSchedulersHookConfiguration configuration = new RequestContextSchedulersHookConfiguration();
+        Field declarations = RequestContextSchedulersHookConfiguration.class.getDeclaredField("declarations");
+        declarations.setAccessible(true);
+        declarations.set(configuration, RequestContextDeclarations.DEFAULT);
+        configuration.registerHook();
+
+        AtomicReference<RequestAttributes> seen = new AtomicReference<>();
+        RequestContextHolder.setRequestAttributes(new TestRequestAttributes());
+        run(Schedulers.computation(), () -> seen.set(RequestContextHolder.getRequestAttributes()));
+
+        assertTrue(seen.get() instanceof RequestContextSnapshot);
+    }
+
+    private static void run(Scheduler scheduler, Runnable task) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        Scheduler.Worker worker = scheduler.createWorker();
+        try {
+            worker.schedule(() -> {
+                task.run();
+                done.countDown();
+            });
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        } finally {
+            worker.unsubscribe();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import org.junit.Test;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class RequestContextSnapshotTest {
+
+    @Test
+    public void copiesOnlyDeclaredAttributes() {
+        RequestAttributes request = new TestRequestAttributes();
+        request.setAttribute("declared", "a", RequestAttributes.SCOPE_REQUEST);
+        request.setAttribute("undeclared", "b", RequestAttributes.SCOPE_REQUEST);
+
+        RequestContextDeclarations declarations =
+                new RequestContextDeclarations(Collections.emptyList(), Arrays.asList("declared"));
+        RequestContextSnapshot snapshot = RequestContextSnapshot.capture(request, declarations);
+
+        assertEquals("a", snapshot.getAttribute("declared", RequestAttributes.SCOPE_REQUEST));
+        assertNull(snapshot.getAttribute("undeclared", RequestAttributes.SCOPE_REQUEST));
+
+        // Declarations are per capture rather than global
+        assertNull(RequestContextSnapshot.capture(request).getAttribute("declared", RequestAttributes.SCOPE_REQUEST));
+    }
+
+    @Test
+    public void keepsWrittenAttributesWithoutChangingTheRequest() {
+        RequestAttributes request = new TestRequestAttributes();
+        RequestContextSnapshot snapshot = RequestContextSnapshot.capture(request);
+
+        // What the request scope does when a request scoped bean is first resolved
+        snapshot.setAttribute("scopedTarget.bean", "bean", RequestAttributes.SCOPE_REQUEST);
+        snapshot.registerDestructionCallback("scopedTarget.bean", () -> { }, RequestAttributes.SCOPE_REQUEST);
+
+        assertEquals("bean", snapshot.getAttribute("scopedTarget.bean", RequestAttributes.SCOPE_REQUEST));
+        assertEquals(1, snapshot.getAttributeNames(RequestAttributes.SCOPE_REQUEST).length);
+        assertNull(request.getAttribute("scopedTarget.bean", RequestAttributes.SCOPE_REQUEST));
+
+        snapshot.removeAttribute("scopedTarget.bean", RequestAttributes.SCOPE_REQUEST);
+        assertNull(snapshot.getAttribute("scopedTarget.bean", RequestAttributes.SCOPE_REQUEST));
+    }
+
+    @Test
+    public void copiesScopedTargetsThatAlreadyExist() {
+        Object bean = new Object();
+        RequestAttributes request = new TestRequestAttributes();
+        request.setAttribute("scopedTarget.bean", bean, RequestAttributes.SCOPE_REQUEST);
+
+        RequestContextSnapshot snapshot = RequestContextSnapshot.capture(request);
+
+        assertSame(bean, snapshot.getAttribute("scopedTarget.bean", RequestAttributes.SCOPE_REQUEST));
+    }
+
+    @Test
+    public void servesSessionScopeFromTheSession() {
+        Map<String, Object> sessionAttributes = new ConcurrentHashMap<>();
+        AtomicBoolean invalidated = new AtomicBoolean();
+        HttpSession session = session(sessionAttributes, invalidated);
+        sessionAttributes.put("scopedTarget.existing", "existing");
+
+        RequestContextSnapshot snapshot =
+                RequestContextSnapshot.capture(new ServletRequestAttributes(request(session)));
+
+        assertEquals("existing", snapshot.getAttribute("scopedTarget.existing", RequestAttributes.SCOPE_SESSION));
+        snapshot.setAttribute("scopedTarget.bean", "bean", RequestAttributes.SCOPE_SESSION);
+        assertEquals("bean", sessionAttributes.get("scopedTarget.bean"));
+
+        // Falls back to the snapshot once the session is gone
+        invalidated.set(true);
+        snapshot.setAttribute("scopedTarget.other", "other", RequestAttributes.SCOPE_SESSION);
+        assertEquals("other", snapshot.getAttribute("scopedTarget.other", RequestAttributes.SCOPE_SESSION));
+        assertNull(sessionAttributes.get("scopedTarget.other"));
+    }
+
+    @Test
+    public void propagatesLiveAttributesWhenDeclared() {
+        RequestAttributes request = new TestRequestAttributes();
+        RequestContextDeclarations declarations =
+                new RequestContextDeclarations(Collections.emptyList(), Collections.emptyList(), true);
+
+        RequestContextHolder.setRequestAttributes(request);
+        try {
+            assertSame(request, declarations.captureIfPresent());
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    private static HttpSession session(Map<String, Object> attributes, AtomicBoolean invalidated) {
+        return (HttpSession) Proxy.newProxyInstance(HttpSession.class.getClassLoader(),
+                new Class<?>[]{HttpSession.class}, (proxy, method, args) -> {
+                    if (invalidated.get()) {
+                        throw new IllegalStateException("invalidated");
+                    }
+
+                    switch (method.getName()) {
+                        case "getId":
+                            return "session";
+                        case "getCreationTime":
+                            return 0L;
+                        case "getAttribute":
+                            return attributes.get(args[0]);
+                        case "setAttribute":
+                            attributes.put((String) args[0], args[1]);
+                            return null;
+                        case "removeAttribute":
+                            attributes.remove(args[0]);
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static HttpServletRequest request(HttpSession session) {
+        return (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getSession":
+                            return session;
+                        case "getAttributeNames":
+                            return Collections.emptyEnumeration();
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import io.ignitr.springboot.common.deadline.Deadline;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import rx.Observable;
+import rx.Scheduler;
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RequestContextStashOperatorTest {
+    /**
+     * Default size of the queue of observeOn, which is the most it requests from upstream at once.
+     */
+    private static final long OBSERVE_ON_BUFFER_SIZE = 128;
+
+    @After
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void bindsAttributesOnlyWhileDeliveringItems() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Scheduler scheduler = Schedulers.from(executor);
+            RequestAttributes seen = stashAndRun(Observable.just(1, 2, 3).observeOn(scheduler));
+
+            // The delivering thread was only ever used by this stream and must have been cleaned up after each item
+            assertNull(executor.submit(RequestContextHolder::getRequestAttributes).get());
+            assertTrue(seen instanceof RequestContextSnapshot);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void passesThroughWhenCapturedOutsideOfRequest() {
+        Observable<RequestAttributes> observable = Observable
+                .fromCallable(RequestContextHolder::getRequestAttributes)
+                .lift(RequestContextStashOperator.<RequestAttributes>ifPresent());
+
+        TestSubscriber<RequestAttributes> subscriber = new TestSubscriber<>();
+        observable.subscribe(subscriber);
+
+        subscriber.assertNoErrors();
+        assertNull(subscriber.getOnNextEvents().get(0));
+    }
+
+    @Test
+    public void restoresAttributesWhenUnsubscribedWithoutTerminalEvent() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Scheduler scheduler = Schedulers.from(executor);
+
+            RequestContextHolder.setRequestAttributes(new TestRequestAttributes());
+            Observable<Long> observable = Observable.interval(1, TimeUnit.MILLISECONDS, scheduler)
+                    .lift(new RequestContextStashOperator<>());
+            RequestContextHolder.resetRequestAttributes();
+
+            TestSubscriber<Long> subscriber = new TestSubscriber<>();
+            observable.take(3).subscribe(subscriber);
+            subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+            subscriber.assertValueCount(3);
+
+            assertNull(executor.submit(RequestContextHolder::getRequestAttributes).get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void restoresPreviousAttributesOfTheDeliveringThread() {
+        Deadline deadline = Deadline.after(1, TimeUnit.MINUTES);
+        RequestAttributes stashed = new TestRequestAttributes();
+        stashed.setAttribute(Deadline.ATTRIBUTE, deadline, RequestAttributes.SCOPE_REQUEST);
+        RequestAttributes own = new TestRequestAttributes();
+
+        RequestContextHolder.setRequestAttributes(stashed);
+        Observable<Integer> observable = Observable.just(1).lift(new RequestContextStashOperator<>());
+
+        RequestContextHolder.setRequestAttributes(own);
+        List<RequestAttributes> seen = new ArrayList<>();
+        observable.subscribe(i -> seen.add(RequestContextHolder.getRequestAttributes()));
+
+        assertEquals(1, seen.size());
+        assertSame(deadline, seen.get(0).getAttribute(Deadline.ATTRIBUTE, RequestAttributes.SCOPE_REQUEST));
+        assertSame(own, RequestContextHolder.getRequestAttributes());
+    }
+
+    @Test
+    public void concurrentStreamsNeverObserveEachOthersAttributes() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            Scheduler scheduler = Schedulers.from(executor);
+            Queue<String> failures = new ConcurrentLinkedQueue<>();
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                futures.add(callers.submit(() -> {
+                    Deadline deadline = Deadline.after(1, TimeUnit.MINUTES);
+                    TestRequestAttributes attributes = new TestRequestAttributes();
+                    attributes.setAttribute(Deadline.ATTRIBUTE, deadline, RequestAttributes.SCOPE_REQUEST);
+                    RequestContextHolder.setRequestAttributes(attributes);
+                    try {
+                        Observable<Integer> observable = Observable.range(0, 50)
+                                .observeOn(scheduler)
+                                .lift(new RequestContextStashOperator<>());
+
+                        TestSubscriber<Integer> subscriber = new TestSubscriber<Integer>() {
+                            @Override
+                            public void onNext(Integer t) {
+                                RequestAttributes current = RequestContextHolder.getRequestAttributes();
+                                if (current == null || current.getAttribute(Deadline.ATTRIBUTE,
+                                        RequestAttributes.SCOPE_REQUEST) != deadline) {
+                                    failures.add("Unexpected attributes " + current);
+                                }
+                                super.onNext(t);
+                            }
+                        };
+
+                        observable.subscribe(subscriber);
+                        subscriber.awaitTerminalEvent(10, TimeUnit.SECONDS);
+                        subscriber.assertValueCount(50);
+                    } finally {
+                        RequestContextHolder.resetRequestAttributes();
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+
+            assertTrue(failures.toString(), failures.isEmpty());
+
+            // No worker thread may keep the attributes of a stream once it has been delivered
+            List<Future<RequestAttributes>> leftovers = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                leftovers.add(executor.submit(RequestContextHolder::getRequestAttributes));
+            }
+            for (Future<RequestAttributes> leftover : leftovers) {
+                assertNull(leftover.get());
+            }
+        } finally {
+            callers.shutdownNow();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void passesBackpressureThroughForMillionsOfItems() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Scheduler scheduler = Schedulers.from(executor);
+            AtomicLong maxRequested = new AtomicLong();
+            AtomicLong emitted = new AtomicLong();
+
+            RequestContextHolder.setRequestAttributes(new TestRequestAttributes());
+            Observable<Integer> observable = Observable.range(0, 5_000_000)
+                    .doOnRequest(n -> maxRequested.accumulateAndGet(n, Math::max))
+                    .doOnNext(i -> emitted.incrementAndGet())
+                    .lift(new RequestContextStashOperator<>())
+                    .observeOn(scheduler);
+            RequestContextHolder.resetRequestAttributes();
+
+            TestSubscriber<Integer> subscriber = new TestSubscriber<Integer>() {
+                private long received;
+
+                @Override
+                public void onNext(Integer t) {
+                    received++;
+                }
+
+                @Override
+                public void onCompleted() {
+                    assertEquals(5_000_000, received);
+                    super.onCompleted();
+                }
+            };
+
+            observable.subscribe(subscriber);
+            subscriber.awaitTerminalEvent(60, TimeUnit.SECONDS);
+            subscriber.assertNoErrors();
+            subscriber.assertCompleted();
+
+            // The source only ever produced what the bounded observeOn queue asked for
+            assertEquals(5_000_000, emitted.get());
+            assertTrue("Requested " + maxRequested.get(), maxRequested.get() <= OBSERVE_ON_BUFFER_SIZE);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void stopsTheSourceWhenTheSubscriberUnsubscribes() {
+        AtomicLong emitted = new AtomicLong();
+        AtomicBoolean unsubscribed = new AtomicBoolean();
+
+        RequestContextHolder.setRequestAttributes(new TestRequestAttributes());
+        Observable<Integer> observable = Observable.range(0, 5_000_000)
+                .doOnNext(i -> emitted.incrementAndGet())
+                .doOnUnsubscribe(() -> unsubscribed.set(true))
+                .lift(new RequestContextStashOperator<>());
+        RequestContextHolder.resetRequestAttributes();
+
+        TestSubscriber<Integer> subscriber = new TestSubscriber<>(0);
+        observable.subscribe(subscriber);
+
+        subscriber.requestMore(10);
+        subscriber.assertValueCount(10);
+        subscriber.unsubscribe();
+
+        assertTrue(unsubscribed.get());
+        assertEquals(10, emitted.get());
+        assertNull(RequestContextHolder.getRequestAttributes());
+    }
+
+    private static RequestAttributes stashAndRun(Observable<Integer> source) {
+        RequestContextHolder.setRequestAttributes(new TestRequestAttributes());
+        Observable<Integer> observable = source.lift(new RequestContextStashOperator<>());
+        RequestContextHolder.resetRequestAttributes();
+
+        List<RequestAttributes> seen = new ArrayList<>();
+        observable.doOnNext(i -> seen.add(RequestContextHolder.getRequestAttributes()))
+                .toBlocking()
+                .last();
+
+        return seen.get(0);
+    }
+}
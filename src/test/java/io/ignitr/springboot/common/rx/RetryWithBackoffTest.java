@@ -0,0 +1,34 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class RetryWithBackoffTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsANegativeMaxDelay() {
+        RetryWithBackoff.builder("inventory").maxDelay(-1, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsANegativeBudgetRatio() {
+        new RetryBudget("inventory", -0.1, 10);
+    }
+}
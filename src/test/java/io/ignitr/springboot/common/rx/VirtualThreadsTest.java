@@ -0,0 +1,46 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.rx;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class VirtualThreadsTest {
+
+    @Test
+    public void usesVirtualThreadsOnlyWhenTheRuntimeSupportsThem() throws Exception {
+        String version = System.getProperty("java.specification.version");
+        boolean java21 = !version.startsWith("1.") && Integer.parseInt(version) >= 21;
+
+        assertEquals(java21, VirtualThreads.isSupported());
+    }
+
+    @Test
+    public void runsTasksOnNamedThreads() throws Exception {
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("test");
+        try {
+            String threadName = executor.submit(() -> Thread.currentThread().getName()).get();
+            assertTrue(threadName, threadName.startsWith("test-"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
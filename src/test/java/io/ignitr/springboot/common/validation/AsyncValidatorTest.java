@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.validation;
+
+import io.ignitr.springboot.common.error.IgnitionFieldError;
+import org.junit.Test;
+import rx.observers.TestSubscriber;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+public class AsyncValidatorTest {
+
+    @Test
+    public void fromFutureReportsNoErrorsForNullResult() {
+        AsyncValidator<String> validator = AsyncValidator.fromFuture(
+                target -> CompletableFuture.<Collection<IgnitionFieldError>>completedFuture(null));
+
+        TestSubscriber<IgnitionFieldError> subscriber = new TestSubscriber<>();
+        validator.validate("target").subscribe(subscriber);
+
+        subscriber.assertNoErrors();
+        subscriber.assertNoValues();
+        subscriber.assertCompleted();
+    }
+}
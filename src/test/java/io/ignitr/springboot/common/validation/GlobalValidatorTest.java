@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.validation;
+
+import org.junit.Test;
+import org.springframework.validation.Errors;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GlobalValidatorTest {
+
+    @Test
+    public void sharesValidatorsThatCannotReferToTheValidatedObject() {
+        assertTrue(GlobalValidator.isShareable(new Order(), new OrderValidator()));
+    }
+
+    @Test
+    public void doesNotShareValidatorsThatMayReferToTheValidatedObject() {
+        Order order = new Order();
+        Validator<Order> lambda = (target, errors) -> errors.reject(order.toString());
+
+        assertFalse(GlobalValidator.isShareable(order, lambda));
+        assertFalse(GlobalValidator.isShareable(order, new OwnerValidator(order)));
+        assertFalse(GlobalValidator.isShareable(order, new AnyValidator(order)));
+        assertFalse(GlobalValidator.isShareable(order, order.new InnerValidator()));
+    }
+
+    @Test
+    public void doesNotShareStatefulValidators() {
+        assertFalse(GlobalValidator.isShareable(new Order(), new CountingValidator()));
+    }
+
+    public static class Order {
+        class InnerValidator implements Validator<Order> {
+            @Override
+            public void validate(Order target, Errors errors) {
+            }
+        }
+    }
+
+    public static class OrderValidator implements Validator<Order> {
+        private final String name = "order";
+
+        @Override
+        public void validate(Order target, Errors errors) {
+            errors.reject(name);
+        }
+    }
+
+    public static class OwnerValidator implements Validator<Order> {
+        private final Order owner;
+
+        public OwnerValidator(Order owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        public void validate(Order target, Errors errors) {
+        }
+    }
+
+    public static class AnyValidator implements Validator<Order> {
+        private final Object source;
+
+        public AnyValidator(Object source) {
+            this.source = source;
+        }
+
+        @Override
+        public void validate(Order target, Errors errors) {
+        }
+    }
+
+    @StatefulValidator
+    public static class CountingValidator implements Validator<Order> {
+        private int count;
+
+        @Override
+        public void validate(Order target, Errors errors) {
+            count++;
+        }
+    }
+}
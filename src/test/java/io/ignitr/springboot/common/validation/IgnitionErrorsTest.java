@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.validation;
+
+import org.junit.Test;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.ValidationUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class IgnitionErrorsTest {
+
+    @Test
+    public void readsFieldValuesOfTheValidatedObject() {
+        Item item = new Item(" ", 3);
+        IgnitionErrors errors = new IgnitionErrors(item, "item");
+
+        assertEquals(" ", errors.getFieldValue("name"));
+        assertEquals(Integer.valueOf(3), errors.getFieldValue("quantity"));
+        assertEquals(int.class, errors.getFieldType("quantity"));
+
+        ValidationUtils.rejectIfEmptyOrWhitespace(errors, "name", "REQUIRED");
+        ValidationUtils.rejectIfEmpty(errors, "quantity", "REQUIRED");
+
+        assertEquals(1, errors.getErrorCount());
+        assertEquals("name", errors.getIgnitionFieldErrors().get(0).getField());
+    }
+
+    @Test
+    public void readsFieldValuesOfCollectionItemsRelativeToTheNestedPath() {
+        List<Item> items = Arrays.asList(new Item("a", 1), new Item(null, 2));
+        IgnitionErrors errors = new IgnitionErrors(items, "items");
+
+        errors.pushNestedPath("[1]");
+        ValidationUtils.rejectIfEmpty(errors, "name", "REQUIRED");
+        assertEquals(Integer.valueOf(2), errors.getFieldValue("quantity"));
+        errors.popNestedPath();
+
+        assertEquals("a", errors.getFieldValue("[0].name"));
+        assertEquals("[1].name", errors.getIgnitionFieldErrors().get(0).getField());
+    }
+
+    @Test
+    public void resolvesFieldsAgainstTheObjectAtTheInitialNestedPath() {
+        IgnitionErrors errors = new IgnitionErrors(new Item("a", 1), "order", "item", 0);
+
+        assertEquals("a", errors.getFieldValue("name"));
+        assertNull(new IgnitionErrors(null, "order").getFieldValue("name"));
+    }
+
+    @Test
+    public void isOnlyTruncatedWhenAnErrorBeyondTheLimitIsRegistered() {
+        IgnitionErrors errors = new IgnitionErrors(null, "item", "", 2);
+
+        errors.reject("FIRST");
+        errors.rejectValue("name", "SECOND");
+        assertFalse(errors.isTruncated());
+
+        try {
+            errors.reject("THIRD");
+            fail("Expected the limit to stop validation");
+        } catch (IgnitionErrors.LimitReachedException e) {
+            // Expected
+        }
+
+        assertTrue(errors.isTruncated());
+        assertEquals(2, errors.getErrorCount());
+    }
+
+    @Test
+    public void copiesArgumentsAndResolvedCodesIntoBindingResults() {
+        IgnitionErrors errors = new IgnitionErrors(null, "item");
+        errors.rejectValue("name", "TOO_LONG", new Object[]{10}, "too long");
+        errors.reject("INVALID", new Object[]{"a"}, "invalid");
+
+        BeanPropertyBindingResult result = new BeanPropertyBindingResult(new Item("a", 1), "order");
+        errors.copyTo(result);
+
+        FieldError error = result.getFieldError("name");
+        assertArrayEquals(new String[]{"TOO_LONG.order.name", "TOO_LONG.name", "TOO_LONG"}, error.getCodes());
+        assertArrayEquals(new Object[]{10}, error.getArguments());
+        assertNull(error.getRejectedValue());
+        assertArrayEquals(new String[]{"INVALID.order", "INVALID"}, result.getGlobalError().getCodes());
+        assertArrayEquals(new Object[]{"a"}, result.getGlobalError().getArguments());
+    }
+
+    public static class Item {
+        private final String name;
+        private final int quantity;
+
+        public Item(String name, int quantity) {
+            this.name = name;
+            this.quantity = quantity;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2016 Greg Whitaker
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.ignitr.springboot.common.validation;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class RulesTest {
+
+    @Test
+    public void notBlankRejectsBlankStringsAndValuesOfOtherTypes() {
+        Rules<IgnitionErrorsTest.Item> rules = Rules.of(IgnitionErrorsTest.Item.class)
+                .field("name").notBlank()
+                .field("quantity").notBlank()
+                .build();
+
+        IgnitionErrors errors = new IgnitionErrors(null, "item");
+        rules.validate(new IgnitionErrorsTest.Item("  ", 3), errors);
+
+        assertEquals(2, errors.getErrorCount());
+        assertEquals(ValidationErrorCode.NOT_BLANK.getValue(), errors.getIgnitionFieldErrors().get(1).getCode());
+    }
+
+    @Test
+    public void reportsOneErrorPerField() {
+        Rules<IgnitionErrorsTest.Item> rules = Rules.of(IgnitionErrorsTest.Item.class)
+                .field("name", IgnitionErrorsTest.Item::getName).notNull().maxLength(2)
+                .field("quantity", IgnitionErrorsTest.Item::getQuantity).min(1).max(2)
+                .build();
+
+        IgnitionErrors errors = new IgnitionErrors(null, "item");
+        rules.validate(new IgnitionErrorsTest.Item(null, 3), errors);
+
+        assertEquals(2, errors.getErrorCount());
+        assertEquals(ValidationErrorCode.NOT_NULL.getValue(), errors.getIgnitionFieldErrors().get(0).getCode());
+        assertEquals(ValidationErrorCode.TOO_LARGE.getValue(), errors.getIgnitionFieldErrors().get(1).getCode());
+    }
+}